@@ -0,0 +1,150 @@
+package net.minecraftforge.forge.tasks
+
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.RegularFileProperty
+
+import java.util.zip.ZipFile
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+
+import net.md_5.specialsource.JarMapping
+import org.objectweb.asm.Type
+
+/*
+ * Compiles the Spigot -> SRG mappings into the binary blob read by
+ * catserver.server.remapper.BinaryMappings, so the server does not have to
+ * parse the text mappings on every boot. The mappings are loaded with the
+ * same JarMapping the server falls back to, so both paths produce the same maps.
+ * The text mappings are looked up as the server does, as the resource
+ * mappings/spigot2srg.srg of the resource directories or dependency jars, and
+ * the build fails without them rather than shipping a server that can't remap.
+ *
+ * Layout (big endian):
+ *   int magic 'CSMB', int version
+ *   int[6] section offsets: strings, packages, classes, fields, methods, descriptors
+ *   strings:     int count, { unsigned short length, UTF-8 bytes }
+ *   packages:    int count, { int old, int new }
+ *   classes:     int count, { int old, int new }
+ *   fields:      int count, { int owner, int name, int mapped }
+ *   methods:     int count, { int owner, int name, int desc, int mapped, unsigned byte argc, int[argc] argument names }
+ *   descriptors: int count, { int old, int new }
+ * All ints in the sections other than the counts are indexes into the string table.
+ */
+abstract class CompileMappings extends DefaultTask {
+	static final int MAGIC = 0x43534D42 // CSMB
+	static final int VERSION = 1
+	static final String RESOURCE = 'mappings/spigot2srg.srg'
+
+	@InputFiles abstract ConfigurableFileCollection getSources()
+	@OutputFile abstract RegularFileProperty getOutput()
+
+	@TaskAction
+	protected void exec() {
+		def srg = readMappings()
+		def mapping = new JarMapping()
+		mapping.loadMappings(new BufferedReader(new StringReader(srg)), null, null, false)
+
+		// Same as ProxyMethodHandle used to read: old descriptor -> new descriptor
+		def descriptors = new LinkedHashMap<String, String>()
+		srg.eachLine { line ->
+			def idx = line.indexOf('#')
+			if (idx != -1) line = line.substring(0, idx)
+			if (!line.startsWith('MD: ')) return
+			def sp = line.split('\\s+')
+			descriptors.put(sp[2], sp[4])
+		}
+
+		def strings = new LinkedHashMap<String, Integer>()
+		def index = { String s -> strings.computeIfAbsent(s, { k -> strings.size() }) }
+
+		def packages = section { out ->
+			out.writeInt(mapping.packages.size())
+			mapping.packages.each { k, v -> out.writeInt(index(k)); out.writeInt(index(v)) }
+		}
+		def classes = section { out ->
+			out.writeInt(mapping.classes.size())
+			mapping.classes.each { k, v -> out.writeInt(index(k)); out.writeInt(index(v)) }
+		}
+		def fields = section { out ->
+			out.writeInt(mapping.fields.size())
+			mapping.fields.each { k, v ->
+				def slash = k.lastIndexOf('/')
+				out.writeInt(index(k.substring(0, slash)))
+				out.writeInt(index(k.substring(slash + 1)))
+				out.writeInt(index(v))
+			}
+		}
+		def methods = section { out ->
+			out.writeInt(mapping.methods.size())
+			mapping.methods.each { k, v ->
+				def space = k.indexOf(' ')
+				def slash = k.lastIndexOf('/', space)
+				def desc = k.substring(space + 1)
+				def args = Type.getArgumentTypes(desc)
+				if (args.length > 255) throw new IllegalStateException('Too many arguments: ' + k)
+				out.writeInt(index(k.substring(0, slash)))
+				out.writeInt(index(k.substring(slash + 1, space)))
+				out.writeInt(index(desc))
+				out.writeInt(index(v))
+				out.writeByte(args.length)
+				// Must match MappingIndex.build
+				args.each { t -> out.writeInt(index(t.sort == Type.ARRAY ? t.internalName : t.className)) }
+			}
+		}
+		def descs = section { out ->
+			out.writeInt(descriptors.size())
+			descriptors.each { k, v -> out.writeInt(index(k)); out.writeInt(index(v)) }
+		}
+		def table = section { out ->
+			out.writeInt(strings.size())
+			strings.keySet().each { s ->
+				def bytes = s.getBytes('UTF-8')
+				if (bytes.length > 0xFFFF) throw new IllegalStateException('String too long: ' + s)
+				out.writeShort(bytes.length)
+				out.write(bytes)
+			}
+		}
+
+		def dest = output.get().asFile
+		dest.parentFile.mkdirs()
+		new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dest))).withCloseable { out ->
+			out.writeInt(MAGIC)
+			out.writeInt(VERSION)
+			int offset = 4 + 4 + 6 * 4
+			[table, packages, classes, fields, methods, descs].each { s ->
+				out.writeInt(offset)
+				offset += s.length
+			}
+			[table, packages, classes, fields, methods, descs].each { s -> out.write(s) }
+		}
+		logger.lifecycle("Compiled ${mapping.classes.size()} classes, ${mapping.fields.size()} fields, ${mapping.methods.size()} methods, ${strings.size()} strings into ${dest.name} (${dest.length()} bytes)")
+	}
+
+	private String readMappings() {
+		for (File source : sources.files) {
+			if (source.isDirectory()) {
+				def file = new File(source, RESOURCE)
+				if (file.isFile()) return file.getText('UTF-8')
+			} else if (source.isFile() && source.name.endsWith('.jar')) {
+				def text = new ZipFile(source).withCloseable { zip ->
+					def entry = zip.getEntry(RESOURCE)
+					entry == null ? null : zip.getInputStream(entry).getText('UTF-8')
+				}
+				if (text != null) return text
+			}
+		}
+		throw new GradleException("Could not find ${RESOURCE} in the server resources or dependencies")
+	}
+
+	private static byte[] section(Closure writer) {
+		def bytes = new ByteArrayOutputStream()
+		def out = new DataOutputStream(bytes)
+		writer(out)
+		out.flush()
+		return bytes.toByteArray()
+	}
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.minecraftforge.fml.loading.moddiscovery;
+
+import net.minecraftforge.fml.loading.FMLPaths;
+import net.minecraftforge.fml.loading.LogMarkers;
+import net.minecraftforge.forgespi.language.ModFileScanData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.objectweb.asm.Type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Class and annotation data of mod jars kept on disk by the hash of the jar,
+ * so jars that did not change since the last start are not scanned again.
+ * Entries not used for 30 days are deleted. Disabled with -Dfml.disableScanCache.
+ */
+class ScanCache
+{
+    private static final Logger LOGGER = LogManager.getLogger();
+    private static final boolean ENABLED = System.getProperty("fml.disableScanCache") == null;
+    private static final int VERSION = 1;
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+    private static final byte NULL = 0, STRING = 1, INT = 2, LONG = 3, FLOAT = 4, DOUBLE = 5, BOOLEAN = 6, BYTE = 7, SHORT = 8, CHAR = 9,
+            TYPE = 10, ENUM = 11, LIST = 12, MAP = 13, BYTE_ARRAY = 14, BOOLEAN_ARRAY = 15, SHORT_ARRAY = 16, CHAR_ARRAY = 17,
+            INT_ARRAY = 18, LONG_ARRAY = 19, FLOAT_ARRAY = 20, DOUBLE_ARRAY = 21;
+
+    /**
+     * Gets the cache key of a mod file, the hash of its contents.
+     *
+     * @return the key, or null if the file can't be cached
+     */
+    static String key(final Path file)
+    {
+        if (!ENABLED || !Files.isRegularFile(file))
+        {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file))
+        {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+                digest.update(buffer, 0, read);
+            }
+            final StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest())
+            {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        }
+        catch (IOException | NoSuchAlgorithmException e)
+        {
+            LOGGER.debug(LogMarkers.SCAN, "Unable to hash {} for the scan cache", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the cached classes and annotations to the scan data.
+     *
+     * @return whether the entry was found
+     */
+    static boolean read(final String key, final ModFileScanData result)
+    {
+        final Path entry = directory().resolve(key + ".bin");
+        if (!Files.exists(entry))
+        {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry))))
+        {
+            if (in.readInt() != VERSION)
+            {
+                return false;
+            }
+            final List<ModFileScanData.ClassData> classes = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                final Type clazz = readType(in);
+                final Type parent = readType(in);
+                final Set<Type> interfaces = new HashSet<>();
+                for (int j = in.readInt(); j > 0; j--)
+                {
+                    interfaces.add(readType(in));
+                }
+                classes.add(new ModFileScanData.ClassData(clazz, parent, interfaces));
+            }
+            final List<ModFileScanData.AnnotationData> annotations = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                final Type annotationType = readType(in);
+                final ElementType targetType = ElementType.valueOf(in.readUTF());
+                final Type clazz = readType(in);
+                final String memberName = (String) readValue(in);
+                annotations.add(new ModFileScanData.AnnotationData(annotationType, targetType, clazz, memberName, readMap(in)));
+            }
+            result.getClasses().addAll(classes);
+            result.getAnnotations().addAll(annotations);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.debug(LogMarkers.SCAN, "Ignoring unreadable scan cache entry {}", entry, e);
+            return false;
+        }
+        try
+        {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException ignored)
+        {
+        }
+        return true;
+    }
+
+    /**
+     * Stores the classes and annotations of the scan data.
+     */
+    static void write(final String key, final ModFileScanData result)
+    {
+        final Path directory = directory();
+        final Path entry = directory.resolve(key + ".bin");
+        try
+        {
+            final Path temp = Files.createTempFile(directory, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(VERSION);
+                out.writeInt(result.getClasses().size());
+                for (ModFileScanData.ClassData data : result.getClasses())
+                {
+                    writeType(out, data.clazz());
+                    writeType(out, data.parent());
+                    out.writeInt(data.interfaces().size());
+                    for (Type type : data.interfaces())
+                    {
+                        writeType(out, type);
+                    }
+                }
+                out.writeInt(result.getAnnotations().size());
+                for (ModFileScanData.AnnotationData data : result.getAnnotations())
+                {
+                    writeType(out, data.annotationType());
+                    out.writeUTF(data.targetType().name());
+                    writeType(out, data.clazz());
+                    writeValue(out, data.memberName());
+                    writeValue(out, data.annotationData());
+                }
+            }
+            catch (IOException | RuntimeException e)
+            {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.debug(LogMarkers.SCAN, "Unable to write scan cache entry {}", entry, e);
+            return;
+        }
+        prune(directory);
+    }
+
+    private static Path directory()
+    {
+        return FMLPaths.getOrCreateGameRelativePath(Paths.get(".cache", "fml-scan"), "scan cache");
+    }
+
+    private static void prune(final Path directory)
+    {
+        final long oldest = System.currentTimeMillis() - MAX_AGE;
+        try (Stream<Path> entries = Files.list(directory))
+        {
+            entries.forEach(entry -> {
+                try
+                {
+                    if (Files.getLastModifiedTime(entry).toMillis() < oldest)
+                    {
+                        Files.deleteIfExists(entry);
+                    }
+                }
+                catch (IOException ignored)
+                {
+                }
+            });
+        }
+        catch (IOException e)
+        {
+            LOGGER.debug(LogMarkers.SCAN, "Unable to prune the scan cache", e);
+        }
+    }
+
+    private static void writeType(final DataOutputStream out, final Type type) throws IOException
+    {
+        writeString(out, type == null ? null : type.getDescriptor());
+    }
+
+    private static Type readType(final DataInputStream in) throws IOException
+    {
+        final String descriptor = readString(in);
+        return descriptor == null ? null : Type.getType(descriptor);
+    }
+
+    // Annotation strings are not limited to the 64k of writeUTF
+    private static void writeString(final DataOutputStream out, final String value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException
+    {
+        final int length = in.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a value as produced by {@link ModAnnotationVisitor}.
+     */
+    @SuppressWarnings("unchecked")
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof String s)
+        {
+            out.writeByte(STRING);
+            writeString(out, s);
+        }
+        else if (value instanceof Integer i)
+        {
+            out.writeByte(INT);
+            out.writeInt(i);
+        }
+        else if (value instanceof Long l)
+        {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        }
+        else if (value instanceof Float f)
+        {
+            out.writeByte(FLOAT);
+            out.writeFloat(f);
+        }
+        else if (value instanceof Double d)
+        {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        }
+        else if (value instanceof Boolean b)
+        {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        }
+        else if (value instanceof Byte b)
+        {
+            out.writeByte(BYTE);
+            out.writeByte(b);
+        }
+        else if (value instanceof Short s)
+        {
+            out.writeByte(SHORT);
+            out.writeShort(s);
+        }
+        else if (value instanceof Character c)
+        {
+            out.writeByte(CHAR);
+            out.writeChar(c);
+        }
+        else if (value instanceof Type t)
+        {
+            out.writeByte(TYPE);
+            writeType(out, t);
+        }
+        else if (value instanceof ModAnnotation.EnumHolder e)
+        {
+            out.writeByte(ENUM);
+            writeString(out, e.getDesc());
+            writeString(out, e.getValue());
+        }
+        else if (value instanceof List<?> list)
+        {
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list)
+            {
+                writeValue(out, element);
+            }
+        }
+        else if (value instanceof Map<?, ?> map)
+        {
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) map).entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+        else if (value instanceof byte[] array)
+        {
+            out.writeByte(BYTE_ARRAY);
+            out.writeInt(array.length);
+            out.write(array);
+        }
+        else if (value instanceof boolean[] array)
+        {
+            out.writeByte(BOOLEAN_ARRAY);
+            out.writeInt(array.length);
+            for (boolean element : array) out.writeBoolean(element);
+        }
+        else if (value instanceof short[] array)
+        {
+            out.writeByte(SHORT_ARRAY);
+            out.writeInt(array.length);
+            for (short element : array) out.writeShort(element);
+        }
+        else if (value instanceof char[] array)
+        {
+            out.writeByte(CHAR_ARRAY);
+            out.writeInt(array.length);
+            for (char element : array) out.writeChar(element);
+        }
+        else if (value instanceof int[] array)
+        {
+            out.writeByte(INT_ARRAY);
+            out.writeInt(array.length);
+            for (int element : array) out.writeInt(element);
+        }
+        else if (value instanceof long[] array)
+        {
+            out.writeByte(LONG_ARRAY);
+            out.writeInt(array.length);
+            for (long element : array) out.writeLong(element);
+        }
+        else if (value instanceof float[] array)
+        {
+            out.writeByte(FLOAT_ARRAY);
+            out.writeInt(array.length);
+            for (float element : array) out.writeFloat(element);
+        }
+        else if (value instanceof double[] array)
+        {
+            out.writeByte(DOUBLE_ARRAY);
+            out.writeInt(array.length);
+            for (double element : array) out.writeDouble(element);
+        }
+        else
+        {
+            throw new IOException("Unsupported annotation value " + value.getClass().getName());
+        }
+    }
+
+    private static Map<String, Object> readMap(final DataInputStream in) throws IOException
+    {
+        if (in.readByte() != MAP)
+        {
+            throw new IOException("Expected annotation values");
+        }
+        return readMapContents(in);
+    }
+
+    private static Map<String, Object> readMapContents(final DataInputStream in) throws IOException
+    {
+        final int size = in.readInt();
+        final Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            final String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static Object readValue(final DataInputStream in) throws IOException
+    {
+        final byte tag = in.readByte();
+        switch (tag)
+        {
+            case NULL: return null;
+            case STRING: return readString(in);
+            case INT: return in.readInt();
+            case LONG: return in.readLong();
+            case FLOAT: return in.readFloat();
+            case DOUBLE: return in.readDouble();
+            case BOOLEAN: return in.readBoolean();
+            case BYTE: return in.readByte();
+            case SHORT: return in.readShort();
+            case CHAR: return in.readChar();
+            case TYPE: return readType(in);
+            case ENUM: return new ModAnnotation.EnumHolder(readString(in), readString(in));
+            case LIST:
+            {
+                final int size = in.readInt();
+                final ArrayList<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++)
+                {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case MAP: return readMapContents(in);
+            case BYTE_ARRAY:
+            {
+                final byte[] array = new byte[in.readInt()];
+                in.readFully(array);
+                return array;
+            }
+            case BOOLEAN_ARRAY:
+            {
+                final boolean[] array = new boolean[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readBoolean();
+                return array;
+            }
+            case SHORT_ARRAY:
+            {
+                final short[] array = new short[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readShort();
+                return array;
+            }
+            case CHAR_ARRAY:
+            {
+                final char[] array = new char[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readChar();
+                return array;
+            }
+            case INT_ARRAY:
+            {
+                final int[] array = new int[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readInt();
+                return array;
+            }
+            case LONG_ARRAY:
+            {
+                final long[] array = new long[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readLong();
+                return array;
+            }
+            case FLOAT_ARRAY:
+            {
+                final float[] array = new float[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readFloat();
+                return array;
+            }
+            case DOUBLE_ARRAY:
+            {
+                final double[] array = new double[in.readInt()];
+                for (int i = 0; i < array.length; i++) array[i] = in.readDouble();
+                return array;
+            }
+            default: throw new IOException("Unknown value tag " + tag);
+        }
+    }
+}
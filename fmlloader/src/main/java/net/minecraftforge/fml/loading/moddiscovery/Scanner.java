@@ -16,7 +16,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Scanner {
     private static final Logger LOGGER = LogManager.getLogger();
@@ -29,7 +32,16 @@ public class Scanner {
     public ModFileScanData scan() {
         ModFileScanData result = new ModFileScanData();
         result.addModFileInfo(fileToScan.getModFileInfo());
-        fileToScan.scanFile(p -> fileVisitor(p, result));
+        // The game's own file is put together from several jars, only cache plain mod jars
+        final String cacheKey = fileToScan.getLocator() instanceof MinecraftLocator ? null : ScanCache.key(fileToScan.getFilePath());
+        if (cacheKey != null && ScanCache.read(cacheKey, result)) {
+            LOGGER.debug(LogMarkers.SCAN, "Loaded scan data of {} from the scan cache", fileToScan);
+        } else {
+            scanClasses(result);
+            if (cacheKey != null) {
+                ScanCache.write(cacheKey, result);
+            }
+        }
         final List<IModLanguageProvider> loaders = fileToScan.getLoaders();
         if (loaders != null) {
             loaders.forEach(loader -> {
@@ -40,15 +52,59 @@ public class Scanner {
         return result;
     }
 
-    private void fileVisitor(final Path path, final ModFileScanData result) {
+    /**
+     * Reads the class files in parallel, then adds their data in the order the
+     * files were found so the result is the same as a sequential scan.
+     */
+    private void scanClasses(final ModFileScanData result) {
+        final List<Path> paths = new ArrayList<>();
+        fileToScan.scanFile(paths::add);
+        final ModClassVisitor[] visitors = new ModClassVisitor[paths.size()];
+        ForkJoinPool.commonPool().invoke(new ScanTask(paths, visitors, 0, paths.size()));
+        for (ModClassVisitor mcv : visitors) {
+            if (mcv != null) {
+                mcv.buildData(result.getClasses(), result.getAnnotations());
+            }
+        }
+    }
+
+    private ModClassVisitor fileVisitor(final Path path) {
         LOGGER.debug(LogMarkers.SCAN,"Scanning {} path {}", fileToScan, path);
         try (InputStream in = Files.newInputStream(path)){
             ModClassVisitor mcv = new ModClassVisitor();
             ClassReader cr = new ClassReader(in);
             cr.accept(mcv, 0);
-            mcv.buildData(result.getClasses(), result.getAnnotations());
+            return mcv;
         } catch (IOException | IllegalArgumentException e) {
             // mark path bad
+            return null;
+        }
+    }
+
+    private class ScanTask extends RecursiveAction {
+        private static final int THRESHOLD = 32;
+        private final List<Path> paths;
+        private final ModClassVisitor[] visitors;
+        private final int from;
+        private final int to;
+
+        private ScanTask(final List<Path> paths, final ModClassVisitor[] visitors, final int from, final int to) {
+            this.paths = paths;
+            this.visitors = visitors;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    visitors[i] = fileVisitor(paths.get(i));
+                }
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new ScanTask(paths, visitors, from, middle), new ScanTask(paths, visitors, middle, to));
         }
     }
 }
@@ -0,0 +1,233 @@
+package catserver.server.inventory;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.Container;
+import net.minecraft.world.inventory.CraftingContainer;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.crafting.BlastingRecipe;
+import net.minecraft.world.item.crafting.CampfireCookingRecipe;
+import net.minecraft.world.item.crafting.Ingredient;
+import net.minecraft.world.item.crafting.Recipe;
+import net.minecraft.world.item.crafting.RecipeType;
+import net.minecraft.world.item.crafting.ShapedRecipe;
+import net.minecraft.world.item.crafting.ShapelessRecipe;
+import net.minecraft.world.item.crafting.SmeltingRecipe;
+import net.minecraft.world.item.crafting.SmokingRecipe;
+import net.minecraft.world.item.crafting.StonecutterRecipe;
+import net.minecraft.world.level.Level;
+
+/**
+ * Recipes of one type indexed by the items they accept, so that
+ * RecipeManager.getRecipeFor only tries the recipes that can match the
+ * container instead of every recipe of the type.
+ * <p>
+ * Only the vanilla recipe classes with vanilla ingredients are indexed, their
+ * matching rules are known: a crafting recipe only matches if every item in
+ * the grid is accepted by one of its ingredients, a cooking or stonecutting
+ * recipe only matches the item in the first slot. Everything else, modded
+ * recipes and ingredients and Bukkit exact choices, is tried for every
+ * container. Candidates are tried in the recipe order, so the result is the
+ * same recipe a full scan finds.
+ * <p>
+ * The recipe the container matched last, if it keeps one, is tried first;
+ * when it still matches only the candidates before it need to be tried.
+ */
+public final class RecipeIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<ResourceLocation, ? extends Recipe<?>> source;
+    private final int size;
+    private final int version;
+    private final boolean crafting;
+    private final Recipe<?>[] recipes;
+    private final Reference2IntOpenHashMap<Recipe<?>> ordinals = new Reference2IntOpenHashMap<Recipe<?>>();
+    private final Reference2ObjectOpenHashMap<Item, int[]> byItem = new Reference2ObjectOpenHashMap<Item, int[]>();
+    private final int[] unindexed;
+
+    private RecipeIndex(RecipeType<?> type, Map<ResourceLocation, ? extends Recipe<?>> source, int version) {
+        this.source = source;
+        this.size = source.size();
+        this.version = version;
+        this.crafting = type == RecipeType.CRAFTING;
+        this.recipes = source.values().toArray(new Recipe<?>[0]);
+        this.ordinals.defaultReturnValue(-1);
+
+        final Reference2ObjectOpenHashMap<Item, IntArrayList> lists = new Reference2ObjectOpenHashMap<Item, IntArrayList>();
+        final IntArrayList unindexed = new IntArrayList();
+        for (int i = 0; i < recipes.length; i++) {
+            final Recipe<?> recipe = recipes[i];
+            ordinals.put(recipe, i);
+            final Set<Item> items = getItems(recipe);
+            if (items == null) {
+                unindexed.add(i);
+                continue;
+            }
+            for (Item item : items) {
+                IntArrayList list = lists.get(item);
+                if (list == null) {
+                    lists.put(item, list = new IntArrayList());
+                }
+                list.add(i);
+            }
+        }
+        for (Map.Entry<Item, IntArrayList> entry : lists.entrySet()) {
+            byItem.put(entry.getKey(), entry.getValue().toIntArray());
+        }
+        this.unindexed = unindexed.toIntArray();
+    }
+
+    /**
+     * Checks whether recipes of the type can be indexed, the types whose
+     * recipes are looked up by item.
+     */
+    public static boolean isIndexed(RecipeType<?> type) {
+        return type == RecipeType.CRAFTING || type == RecipeType.SMELTING || type == RecipeType.BLASTING
+                || type == RecipeType.SMOKING || type == RecipeType.CAMPFIRE_COOKING || type == RecipeType.STONECUTTING;
+    }
+
+    /**
+     * Indexes the recipes of a type.
+     *
+     * @param type the recipe type, one of {@link #isIndexed(RecipeType)}
+     * @param recipes the recipes of the type, in lookup order
+     * @param version the recipe manager's modification count
+     */
+    public static RecipeIndex build(RecipeType<?> type, Map<ResourceLocation, ? extends Recipe<?>> recipes, int version) {
+        return new RecipeIndex(type, recipes, version);
+    }
+
+    /**
+     * Checks whether the index is still up to date with the recipes.
+     */
+    public boolean isValidFor(Map<ResourceLocation, ? extends Recipe<?>> recipes, int version) {
+        return recipes == source && recipes.size() == size && version == this.version;
+    }
+
+    /**
+     * Gets the items accepted by a recipe.
+     *
+     * @return the items, or null if the recipe can't be indexed
+     */
+    private static Set<Item> getItems(Recipe<?> recipe) {
+        final Class<?> clazz = recipe.getClass();
+        final boolean shaped = clazz == ShapedRecipe.class;
+        if (!shaped && clazz != ShapelessRecipe.class && clazz != SmeltingRecipe.class && clazz != BlastingRecipe.class
+                && clazz != SmokingRecipe.class && clazz != CampfireCookingRecipe.class && clazz != StonecutterRecipe.class) {
+            return null;
+        }
+
+        final Set<Item> items = new ReferenceOpenHashSet<Item>();
+        for (Ingredient ingredient : recipe.getIngredients()) {
+            if (!ingredient.isVanilla() || ingredient.exact) {
+                return null;
+            }
+            final ItemStack[] stacks = ingredient.getItems();
+            if (stacks.length == 0 && !shaped) {
+                // Only matches an empty slot
+                return null;
+            }
+            for (ItemStack stack : stacks) {
+                items.add(stack.getItem());
+            }
+        }
+        return items.isEmpty() ? null : items;
+    }
+
+    /**
+     * Finds the first recipe matching the container.
+     */
+    @SuppressWarnings("unchecked")
+    public <C extends Container, T extends Recipe<C>> Optional<T> find(RecipeType<T> type, C container, Level level) {
+        final int[] candidates = getCandidates(container);
+
+        int limit = recipes.length;
+        Optional<T> result = Optional.empty();
+        final Recipe<?> last = container.getCurrentRecipe();
+        if (last != null) {
+            final int ordinal = ordinals.getInt(last);
+            if (ordinal >= 0) {
+                result = type.tryMatch((Recipe<C>) last, level, container);
+                if (result.isPresent()) {
+                    limit = ordinal;
+                }
+            }
+        }
+
+        if (candidates == null) {
+            for (int i = 0; i < limit; i++) {
+                final Optional<T> recipe = type.tryMatch((Recipe<C>) recipes[i], level, container);
+                if (recipe.isPresent()) {
+                    return recipe;
+                }
+            }
+            return result;
+        }
+
+        // Both are sorted, try them in recipe order
+        int i = 0;
+        int j = 0;
+        while (true) {
+            final int next;
+            if (i < candidates.length && (j >= unindexed.length || candidates[i] < unindexed[j])) {
+                next = candidates[i++];
+            } else if (j < unindexed.length) {
+                next = unindexed[j++];
+            } else {
+                break;
+            }
+            if (next >= limit) {
+                break;
+            }
+            final Optional<T> recipe = type.tryMatch((Recipe<C>) recipes[next], level, container);
+            if (recipe.isPresent()) {
+                return recipe;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the indexed recipes that can match the container.
+     *
+     * @return the sorted ordinals, or null to try every recipe
+     */
+    private int[] getCandidates(Container container) {
+        if (!crafting) {
+            if (container.getContainerSize() == 0) {
+                return null;
+            }
+            final ItemStack input = container.getItem(0);
+            return input.isEmpty() ? NONE : byItem.getOrDefault(input.getItem(), NONE);
+        }
+        if (!(container instanceof CraftingContainer)) {
+            return null;
+        }
+
+        // Every item in the grid must be accepted, the shortest list will do
+        int[] candidates = null;
+        for (int i = 0; i < container.getContainerSize(); i++) {
+            final ItemStack stack = container.getItem(i);
+            if (stack.isEmpty()) {
+                continue;
+            }
+            final int[] list = byItem.getOrDefault(stack.getItem(), NONE);
+            if (candidates == null || list.length < candidates.length) {
+                candidates = list;
+                if (list.length == 0) {
+                    break;
+                }
+            }
+        }
+        // An empty grid can't match an indexed recipe, only the unindexed ones are tried
+        return candidates == null ? NONE : candidates;
+    }
+}
@@ -0,0 +1,149 @@
+package catserver.server.remapper;
+
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import net.md_5.specialsource.JarMapping;
+
+/**
+ * Reader for the pre-compiled NMS mappings produced by the
+ * {@code compileMappings} build task from {@code mappings/spigot2srg.srg}.
+ * <p>
+ * The blob holds the already parsed JarMapping entries plus the argument
+ * types needed by {@link MappingIndex}, with every string stored once in a
+ * shared table, so loading it is a sequence of table lookups and map puts
+ * instead of splitting and parsing the text mappings line by line.
+ */
+public final class BinaryMappings {
+    public static final String RESOURCE = "mappings/spigot2srg.bin";
+
+    private static final int MAGIC = 0x43534D42; // CSMB
+    private static final int VERSION = 1;
+    private static final int SECTION_PACKAGES = 1;
+    private static final int SECTION_CLASSES = 2;
+    private static final int SECTION_FIELDS = 3;
+    private static final int SECTION_METHODS = 4;
+    private static final int SECTION_DESCRIPTORS = 5;
+
+    private final ByteBuffer buffer;
+    private final int[] sections = new int[6];
+    private final String[] strings;
+
+    private BinaryMappings(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) throw new IOException("Not a mappings blob");
+        int version = buffer.getInt(4);
+        if (version != VERSION) throw new IOException("Unsupported mappings blob version " + version);
+        for (int i = 0; i < sections.length; i++) {
+            sections[i] = buffer.getInt(8 + i * 4);
+        }
+
+        ByteBuffer in = section(0);
+        strings = new String[in.getInt()];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = in.getShort() & 0xFFFF;
+            if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            in.get(bytes, 0, length);
+            // Interned so the maps share the instances with the rest of the remapper
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8).intern();
+        }
+    }
+
+    /**
+     * Reads the blob from the classpath. Every entry ends up in the
+     * JarMapping maps anyway, so it is simply read into memory and decoded
+     * once; the buffer can be dropped after loading.
+     *
+     * @return the mappings, or null if the blob is not on the classpath
+     */
+    public static BinaryMappings load() throws IOException {
+        try (InputStream in = BinaryMappings.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in == null) return null;
+            return new BinaryMappings(ByteBuffer.wrap(ByteStreams.toByteArray(in)));
+        }
+    }
+
+    /**
+     * Adds the packages, classes, fields and methods to the given mapping,
+     * producing the same entries as {@link JarMapping#loadMappings}.
+     */
+    public void apply(JarMapping jarMapping) {
+        ByteBuffer in = section(SECTION_PACKAGES);
+        for (int i = in.getInt(); i > 0; i--) {
+            jarMapping.packages.put(strings[in.getInt()], strings[in.getInt()]);
+        }
+
+        in = section(SECTION_CLASSES);
+        for (int i = in.getInt(); i > 0; i--) {
+            jarMapping.classes.put(strings[in.getInt()], strings[in.getInt()]);
+        }
+
+        in = section(SECTION_FIELDS);
+        for (int i = in.getInt(); i > 0; i--) {
+            String owner = strings[in.getInt()];
+            String name = strings[in.getInt()];
+            jarMapping.fields.put(owner + "/" + name, strings[in.getInt()]);
+        }
+
+        in = section(SECTION_METHODS);
+        for (int i = in.getInt(); i > 0; i--) {
+            String owner = strings[in.getInt()];
+            String name = strings[in.getInt()];
+            String desc = strings[in.getInt()];
+            jarMapping.methods.put(owner + "/" + name + " " + desc, strings[in.getInt()]);
+            int argCount = in.get() & 0xFF;
+            in.position(in.position() + argCount * 4);
+        }
+    }
+
+    /**
+     * Builds the reflection index directly from the blob, without parsing
+     * any descriptors.
+     */
+    public MappingIndex buildIndex() {
+        MappingIndex.Builder builder = new MappingIndex.Builder();
+
+        ByteBuffer in = section(SECTION_FIELDS);
+        for (int i = in.getInt(); i > 0; i--) {
+            builder.addField(strings[in.getInt()], strings[in.getInt()], strings[in.getInt()]);
+        }
+
+        in = section(SECTION_METHODS);
+        for (int i = in.getInt(); i > 0; i--) {
+            String owner = strings[in.getInt()];
+            String name = strings[in.getInt()];
+            in.getInt(); // descriptor
+            String mapped = strings[in.getInt()];
+            String[] argNames = new String[in.get() & 0xFF];
+            for (int j = 0; j < argNames.length; j++) {
+                argNames[j] = strings[in.getInt()];
+            }
+            builder.addMethod(owner, name, argNames, mapped);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the old to new descriptor mapping of all methods.
+     */
+    public Map<String, String> getMethodDescriptors() {
+        ByteBuffer in = section(SECTION_DESCRIPTORS);
+        int count = in.getInt();
+        Map<String, String> descriptors = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            descriptors.put(strings[in.getInt()], strings[in.getInt()]);
+        }
+        return descriptors;
+    }
+
+    private ByteBuffer section(int section) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(sections[section]);
+        return in;
+    }
+}
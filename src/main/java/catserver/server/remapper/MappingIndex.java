@@ -0,0 +1,119 @@
+package catserver.server.remapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.md_5.specialsource.JarMapping;
+import org.objectweb.asm.Type;
+
+/**
+ * Pre-parsed view of a {@link JarMapping} for the runtime reflection remapper.
+ * <p>
+ * The SRG keys are split once when the index is built, so lookups only do
+ * map gets and array compares instead of splitting strings and parsing
+ * descriptors on every call.
+ */
+public final class MappingIndex {
+    private static final MethodEntry[] NO_METHODS = new MethodEntry[0];
+
+    // owner -> name -> overloads
+    private final Map<String, Map<String, MethodEntry[]>> methods;
+    // mapped name -> owner -> original name
+    private final Map<String, Map<String, String>> methodNamesReverse;
+    private final Map<String, Map<String, String>> fieldNamesReverse;
+
+    private MappingIndex(Map<String, Map<String, MethodEntry[]>> methods, Map<String, Map<String, String>> methodNamesReverse, Map<String, Map<String, String>> fieldNamesReverse) {
+        this.methods = methods;
+        this.methodNamesReverse = methodNamesReverse;
+        this.fieldNamesReverse = fieldNamesReverse;
+    }
+
+    public static MappingIndex build(JarMapping jarMapping) {
+        Builder builder = new Builder();
+        jarMapping.methods.forEach((key, mapped) -> {
+            // key is "owner/name desc"
+            int space = key.indexOf(' ');
+            int slash = key.lastIndexOf('/', space);
+            Type[] args = Type.getArgumentTypes(key.substring(space + 1));
+            String[] argNames = new String[args.length];
+            for (int i = 0; i < args.length; i++) {
+                argNames[i] = (args[i].getSort() == Type.ARRAY ? args[i].getInternalName() : args[i].getClassName()).intern();
+            }
+            builder.addMethod(key.substring(0, slash).intern(), key.substring(slash + 1, space).intern(), argNames, mapped.intern());
+        });
+        jarMapping.fields.forEach((key, mapped) -> {
+            // key is "owner/name"
+            int slash = key.lastIndexOf('/');
+            builder.addField(key.substring(0, slash).intern(), key.substring(slash + 1).intern(), mapped.intern());
+        });
+        return builder.build();
+    }
+
+    /**
+     * Gets the overloads of a method declared by the given unmapped owner
+     */
+    public MethodEntry[] getMethods(String owner, String name) {
+        Map<String, MethodEntry[]> byName = methods.get(owner);
+        if (byName == null) return NO_METHODS;
+        MethodEntry[] entries = byName.get(name);
+        return entries != null ? entries : NO_METHODS;
+    }
+
+    /**
+     * Gets the unmapped name of a method declared by the given unmapped owner
+     */
+    public String reverseMethodName(String owner, String mappedName) {
+        return methodNamesReverse.getOrDefault(mappedName, Collections.emptyMap()).get(owner);
+    }
+
+    /**
+     * Gets the unmapped name of a field declared by the given unmapped owner
+     */
+    public String reverseFieldName(String owner, String mappedName) {
+        return fieldNamesReverse.getOrDefault(mappedName, Collections.emptyMap()).get(owner);
+    }
+
+    public static final class MethodEntry {
+        /**
+         * Unmapped argument types, as {@link Type#getClassName()} or the
+         * internal name for arrays
+         */
+        public final String[] argNames;
+        public final String mappedName;
+
+        MethodEntry(String[] argNames, String mappedName) {
+            this.argNames = argNames;
+            this.mappedName = mappedName;
+        }
+    }
+
+    static final class Builder {
+        private final Map<String, Map<String, List<MethodEntry>>> methods = new HashMap<>();
+        private final Map<String, Map<String, String>> methodNamesReverse = new HashMap<>();
+        private final Map<String, Map<String, String>> fieldNamesReverse = new HashMap<>();
+
+        /**
+         * @param argNames unmapped argument types, as {@link Type#getClassName()} or the internal name for arrays
+         */
+        void addMethod(String owner, String name, String[] argNames, String mappedName) {
+            methods.computeIfAbsent(owner, k -> new HashMap<>()).computeIfAbsent(name, k -> new ArrayList<>()).add(new MethodEntry(argNames, mappedName));
+            methodNamesReverse.computeIfAbsent(mappedName, k -> new HashMap<>(2)).putIfAbsent(owner, name);
+        }
+
+        void addField(String owner, String name, String mappedName) {
+            fieldNamesReverse.computeIfAbsent(mappedName, k -> new HashMap<>(2)).putIfAbsent(owner, name);
+        }
+
+        MappingIndex build() {
+            Map<String, Map<String, MethodEntry[]>> baked = new HashMap<>(methods.size());
+            methods.forEach((owner, byName) -> {
+                Map<String, MethodEntry[]> bakedByName = new HashMap<>(byName.size());
+                byName.forEach((name, entries) -> bakedByName.put(name, entries.toArray(NO_METHODS)));
+                baked.put(owner, bakedByName);
+            });
+            return new MappingIndex(baked, methodNamesReverse, fieldNamesReverse);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
 import net.md_5.specialsource.JarMapping;
 
 public class MappingLoader {
@@ -16,6 +18,9 @@ public class MappingLoader {
     private static Field fieldFields;
     private static Field fieldMethods;
 
+    private static MappingIndex mappingIndex;
+    private static Map<String, String> methodDescriptors;
+
     static {
         initGlobalMapping();
     }
@@ -62,9 +67,63 @@ public class MappingLoader {
     }
 
     private static void loadNmsMappings(JarMapping jarMapping, String obfVersion) throws IOException {
+        long start = System.nanoTime();
+        try {
+            BinaryMappings binary = BinaryMappings.load();
+            if (binary != null) {
+                binary.apply(jarMapping);
+                mappingIndex = binary.buildIndex();
+                methodDescriptors = binary.getMethodDescriptors();
+                CatServer.LOGGER.debug("Loaded {} in {} ms", BinaryMappings.RESOURCE, (System.nanoTime() - start) / 1000000);
+                return;
+            }
+            CatServer.LOGGER.warn("Missing {}, falling back to parsing mappings/spigot2srg.srg", BinaryMappings.RESOURCE);
+        } catch (IOException e) {
+            CatServer.LOGGER.warn("Could not load {}, falling back to parsing mappings/spigot2srg.srg", BinaryMappings.RESOURCE, e);
+        }
+
         jarMapping.loadMappings(
                 new BufferedReader(new InputStreamReader(MappingLoader.class.getClassLoader().getResourceAsStream("mappings/spigot2srg.srg"))),
                 null, null, false);
+        methodDescriptors = loadMethodDescriptors();
+        CatServer.LOGGER.debug("Loaded mappings/spigot2srg.srg in {} ms", (System.nanoTime() - start) / 1000000);
+    }
+
+    private static Map<String, String> loadMethodDescriptors() throws IOException {
+        Map<String, String> descriptors = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(MappingLoader.class.getClassLoader().getResourceAsStream("mappings/spigot2srg.srg")))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int commentIndex = line.indexOf('#');
+                if (commentIndex != -1) {
+                    line = line.substring(0, commentIndex);
+                }
+                if (line.isEmpty() || !line.startsWith("MD: ")) {
+                    continue;
+                }
+                String[] sp = line.split("\\s+");
+                descriptors.put(sp[2], sp[4]);
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Gets the reflection index of the NMS mappings, built from the
+     * pre-compiled mappings when they are available.
+     */
+    public static synchronized MappingIndex getMappingIndex() {
+        if (mappingIndex == null) {
+            mappingIndex = MappingIndex.build(globalJarMapping);
+        }
+        return mappingIndex;
+    }
+
+    /**
+     * Gets the old to new descriptor mapping of the NMS methods.
+     */
+    public static Map<String, String> getMethodDescriptors() {
+        return methodDescriptors != null ? methodDescriptors : new HashMap<>();
     }
 
     public static JarMapping loadMapping() {
@@ -0,0 +1,187 @@
+package catserver.server.remapper;
+
+import catserver.server.CatServer;
+import catserver.server.patcher.IPatcher;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import net.minecraftforge.fml.ModList;
+import org.spigotmc.SpigotConfig;
+
+/**
+ * On-disk cache of remapped plugin classes.
+ * <p>
+ * Entries live in one directory per plugin, named after a hash of the plugin
+ * jar, the jars of its dependencies, the NMS mappings, the loaded mods, the
+ * plugin patcher and the CatServer build, so any change to one of them simply
+ * misses the cache. Each entry stores the time the remap originally took,
+ * which is used to report the time saved by hits.
+ * <p>
+ * Development builds report an unknown version and are never cached, as their
+ * remapper may change without the version string changing.
+ */
+public class PluginClassCache {
+    private static final File CACHE_DIR = new File("cache", "plugin-classes");
+
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+    private static final AtomicLong savedNanos = new AtomicLong();
+    private static final AtomicLong remapNanos = new AtomicLong();
+    private static String mappingHash;
+    private static String modListHash;
+
+    private final File dir;
+
+    private PluginClassCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Opens the cache of a plugin jar.
+     *
+     * @param pluginName name of the plugin
+     * @param pluginFile the plugin jar
+     * @param dependencyFiles the jars of the loaded depend and softdepend plugins
+     * @param patcher the patcher applied to the plugin classes, may be null
+     * @return the cache, or null if caching is disabled or unavailable
+     */
+    public static PluginClassCache open(String pluginName, File pluginFile, List<File> dependencyFiles, IPatcher patcher) {
+        if (!SpigotConfig.pluginClassCache) return null;
+        if ("unknown".equals(CatServer.getBuildVersion())) return null;
+        try {
+            Hasher hasher = Hashing.sha256().newHasher()
+                    .putString(Files.asByteSource(pluginFile).hash(Hashing.sha256()).toString(), StandardCharsets.UTF_8);
+            // Remapping resolves inheritance through the dependencies, so their classes are part of the result
+            for (File dependency : dependencyFiles) {
+                hasher.putString(Files.asByteSource(dependency).hash(Hashing.sha256()).toString(), StandardCharsets.UTF_8);
+            }
+            String key = hasher
+                    .putString(getMappingHash(), StandardCharsets.UTF_8)
+                    .putString(getModListHash(), StandardCharsets.UTF_8)
+                    .putString(patcher != null ? patcher.getClass().getName() : "none", StandardCharsets.UTF_8)
+                    .putString(CatServer.getBuildVersion(), StandardCharsets.UTF_8)
+                    .hash().toString();
+            String prefix = pluginName.replaceAll("[^A-Za-z0-9_.-]", "_") + "-";
+            File dir = new File(CACHE_DIR, prefix + key);
+
+            // Drop the entries of older versions of this plugin, only exact name + key matches as "Foo-" also prefixes "Foo-Bar-"
+            Pattern entry = Pattern.compile(Pattern.quote(prefix) + "[0-9a-f]{64}");
+            File[] old = CACHE_DIR.listFiles((file, name) -> entry.matcher(name).matches() && !name.equals(dir.getName()));
+            if (old != null) {
+                for (File file : old) {
+                    deleteRecursively(file);
+                }
+            }
+
+            if (!dir.isDirectory() && !dir.mkdirs()) return null;
+            return new PluginClassCache(dir);
+        } catch (IOException e) {
+            CatServer.LOGGER.warn("Could not open plugin class cache for {}", pluginName, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the cached bytes of a class.
+     *
+     * @param name binary name of the class
+     * @return the remapped bytes, or null on a miss
+     */
+    public byte[] get(String name) {
+        File file = new File(dir, name + ".class");
+        if (!file.isFile()) return null;
+
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            long cost = in.readLong();
+            byte[] bytecode = ByteStreams.toByteArray(in);
+            hits.incrementAndGet();
+            savedNanos.addAndGet(cost - (System.nanoTime() - start));
+            return bytecode;
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the bytes of a class that missed the cache.
+     *
+     * @param name binary name of the class
+     * @param bytecode the remapped bytes
+     * @param cost time spent remapping, in nanoseconds
+     */
+    public void put(String name, byte[] bytecode, long cost) {
+        misses.incrementAndGet();
+        remapNanos.addAndGet(cost);
+
+        File file = new File(dir, name + ".class");
+        File temp = new File(dir, name + ".class." + Thread.currentThread().getId() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+                out.writeLong(cost);
+                out.write(bytecode);
+            }
+            java.nio.file.Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temp.delete();
+        }
+    }
+
+    public static void logStatistics() {
+        if (hits.get() == 0 && misses.get() == 0) return;
+        CatServer.LOGGER.info("Plugin class cache: {} hits, {} misses, {} ms spent remapping, ~{} ms saved",
+                hits.get(), misses.get(), TimeUnit.NANOSECONDS.toMillis(remapNanos.get()), TimeUnit.NANOSECONDS.toMillis(savedNanos.get()));
+    }
+
+    private static synchronized String getModListHash() {
+        if (modListHash == null) {
+            // Mod classes are visible to the remapper as well, any added, removed or updated mod changes the key
+            Hasher hasher = Hashing.sha256().newHasher();
+            ModList.get().getMods().stream()
+                    .map(mod -> mod.getModId() + "@" + mod.getVersion())
+                    .sorted()
+                    .forEach(mod -> hasher.putString(mod, StandardCharsets.UTF_8).putByte((byte) 0));
+            modListHash = hasher.hash().toString();
+        }
+        return modListHash;
+    }
+
+    private static synchronized String getMappingHash() throws IOException {
+        if (mappingHash == null) {
+            // The compiled mappings are derived from the text ones and much cheaper to hash
+            InputStream mappings = MappingLoader.class.getClassLoader().getResourceAsStream(BinaryMappings.RESOURCE);
+            if (mappings == null) mappings = MappingLoader.class.getClassLoader().getResourceAsStream("mappings/spigot2srg.srg");
+            try (InputStream in = mappings) {
+                if (in == null) throw new IOException("Missing mappings/spigot2srg.srg");
+                mappingHash = Hashing.sha256().hashBytes(ByteStreams.toByteArray(in)).toString();
+            }
+        }
+        return mappingHash;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -3,32 +3,29 @@ package catserver.server.remapper;
 import catserver.server.remapper.proxy.ProxyClassLoader;
 import java.util.*;
 
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.AbstractInsnNode;
-import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.MethodInsnNode;
-import org.objectweb.asm.tree.MethodNode;
 
 import net.md_5.specialsource.JarMapping;
 import net.md_5.specialsource.provider.JointProvider;
-import org.objectweb.asm.tree.TypeInsnNode;
 
 public class ReflectionTransformer {
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
 
     public static JarMapping jarMapping;
     public static CatServerRemapper remapper;
 
     public static final HashMap<String, String> classReverseMapping = Maps.newHashMap();
-    public static final Multimap<String, String> methodReverseMapping = ArrayListMultimap.create();
-    public static final Multimap<String, String> fieldReverseMapping = ArrayListMultimap.create();
-    public static final Multimap<String, String> methodFastMapping = ArrayListMultimap.create();
+    public static MappingIndex mappingIndex;
 
     public static void init() {
         jarMapping = MappingLoader.loadMapping();
@@ -38,9 +35,7 @@ public class ReflectionTransformer {
         remapper = new CatServerRemapper(jarMapping);
 
         jarMapping.classes.forEach((k, v) -> classReverseMapping.put(v, k));
-        jarMapping.methods.forEach((k, v) -> methodReverseMapping.put(v, k));
-        jarMapping.fields.forEach((k, v) -> fieldReverseMapping.put(v, k));
-        jarMapping.methods.forEach((k, v) -> methodFastMapping.put(k.split("\\s+")[0], k));
+        mappingIndex = MappingLoader.getMappingIndex();
 
         try {
             Class.forName("catserver.server.remapper.proxy.ProxyMethodHandle");
@@ -53,53 +48,136 @@ public class ReflectionTransformer {
      * Convert code from using Class.X methods to our remapped versions
      */
     public static byte[] transform(byte[] code) {
-        ClassReader reader = new ClassReader(code); // Turn from bytes into visitor
-        ClassNode node = new ClassNode();
-        reader.accept(node, 0); // Visit using ClassNode
-
-        boolean remapCL = false;
-        Class<?> remappedSuperClass = RemapRules.getSuperClassTarget(node.superName);
-        if (remappedSuperClass != null) {
-            if (remappedSuperClass == ProxyClassLoader.class) RemapRules.addVirtualMethodTarget(node.name + ";defineClass", ProxyClassLoader.class);
-            node.superName = Type.getInternalName(remappedSuperClass);
-            remapCL = true;
+        ClassReader reader = new ClassReader(code);
+        if (!referencesRemapTargets(reader)) {
+            return code; // Nothing to rewrite, skip the parse/write cycle
         }
 
-        for (MethodNode method : node.methods) { // Taken from SpecialSource
-            ListIterator<AbstractInsnNode> insnIterator = method.instructions.iterator();
-            while (insnIterator.hasNext()) {
-                AbstractInsnNode next = insnIterator.next();
+        ClassWriter writer = new ClassWriter(reader, 0/* ClassWriter.COMPUTE_FRAMES */);
+        reader.accept(new ReflectionClassVisitor(writer), 0);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Scans the constant pool for a class, method or constructor reference
+     * that one of the {@link RemapRules} would rewrite
+     */
+    private static boolean referencesRemapTargets(ClassReader reader) {
+        char[] buf = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+            if (offset == 0) continue; // Second slot of a long or double
+
+            switch (reader.readByte(offset - 1)) {
+                case CONSTANT_CLASS:
+                    if (RemapRules.getSuperClassTarget(reader.readUTF8(offset, buf)) != null) return true;
+                    break;
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                    String owner = reader.readClass(offset, buf);
+                    String name = reader.readUTF8(reader.getItem(reader.readUnsignedShort(offset + 2)), buf);
+                    String key = owner + ";" + name;
+                    if (RemapRules.getStaticMethodTarget(key) != null || RemapRules.getVirtualMethodToStaticTarget(key) != null || RemapRules.getVirtualMethodTarget(key) != null) return true;
+                    if (owner.equals("javax/script/ScriptEngineManager") && name.equals("<init>")) return true;
+                    break;
+            }
+        }
+        return false;
+    }
+
+    private static class ReflectionClassVisitor extends ClassVisitor {
+        private boolean remapCL = false;
+
+        ReflectionClassVisitor(ClassVisitor classVisitor) {
+            super(Opcodes.ASM9, classVisitor);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            Class<?> remappedSuperClass = RemapRules.getSuperClassTarget(superName);
+            if (remappedSuperClass != null) {
+                if (remappedSuperClass == ProxyClassLoader.class) RemapRules.addVirtualMethodTarget(name + ";defineClass", ProxyClassLoader.class);
+                superName = Type.getInternalName(remappedSuperClass);
+                remapCL = true;
+            }
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+            return new ReflectionMethodVisitor(super.visitMethod(access, name, descriptor, signature, exceptions));
+        }
 
-                if (next instanceof TypeInsnNode && next.getOpcode() == Opcodes.NEW) { // remap new URLClassLoader
-                    TypeInsnNode insn = (TypeInsnNode) next;
-                    Class<?> remappedClass = RemapRules.getSuperClassTarget(insn.desc);
+        private class ReflectionMethodVisitor extends MethodVisitor {
+            private int extraStack = 0;
+
+            ReflectionMethodVisitor(MethodVisitor methodVisitor) {
+                super(Opcodes.ASM9, methodVisitor);
+            }
+
+            @Override
+            public void visitTypeInsn(int opcode, String type) {
+                if (opcode == Opcodes.NEW) { // remap new URLClassLoader
+                    Class<?> remappedClass = RemapRules.getSuperClassTarget(type);
                     if (remappedClass != null) {
-                        insn.desc = Type.getInternalName(remappedClass);
+                        type = Type.getInternalName(remappedClass);
                         remapCL = true;
                     }
                 }
+                super.visitTypeInsn(opcode, type);
+            }
 
-                if (next instanceof MethodInsnNode) {
-                    MethodInsnNode insn = (MethodInsnNode) next;
-                    switch (insn.getOpcode()) {
-                        case Opcodes.INVOKEVIRTUAL:
-                            remapVirtual(insn);
-                            break;
-                        case Opcodes.INVOKESTATIC:
-                            remapStatic(insn);
-                            break;
-                        case Opcodes.INVOKESPECIAL:
-                            if (remapCL) remapSuperClass(insn);
-                            remapScriptEngineManager(insn, method);
-                            break;
-                    }
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                Class<?> remappedClass;
+                switch (opcode) {
+                    case Opcodes.INVOKEVIRTUAL:
+                        remappedClass = RemapRules.getVirtualMethodToStaticTarget(owner + ";" + name);
+                        if (remappedClass != null) {
+                            Type returnType = Type.getReturnType(descriptor);
+                            ArrayList<Type> args = new ArrayList<>();
+                            args.add(Type.getObjectType(owner));
+                            args.addAll(Arrays.asList(Type.getArgumentTypes(descriptor)));
+
+                            opcode = Opcodes.INVOKESTATIC;
+                            owner = Type.getInternalName(remappedClass);
+                            descriptor = Type.getMethodDescriptor(returnType, args.toArray(new Type[0]));
+                        } else {
+                            remappedClass = RemapRules.getVirtualMethodTarget(owner + ";" + name);
+                            if (remappedClass != null) {
+                                name += "Remap";
+                                owner = Type.getInternalName(remappedClass);
+                            }
+                        }
+                        break;
+                    case Opcodes.INVOKESTATIC:
+                        remappedClass = RemapRules.getStaticMethodTarget(owner + ";" + name);
+                        if (remappedClass != null) {
+                            owner = Type.getInternalName(remappedClass);
+                        }
+                        break;
+                    case Opcodes.INVOKESPECIAL:
+                        if (remapCL && name.equals("<init>")) {
+                            remappedClass = RemapRules.getSuperClassTarget(owner);
+                            if (remappedClass != null) {
+                                owner = Type.getInternalName(remappedClass);
+                            }
+                        }
+                        if (owner.equals("javax/script/ScriptEngineManager") && descriptor.equals("()V") && name.equals("<init>")) {
+                            descriptor = "(Ljava/lang/ClassLoader;)V";
+                            super.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/ClassLoader", "getSystemClassLoader", "()Ljava/lang/ClassLoader;", false);
+                            extraStack++;
+                        }
+                        break;
                 }
+                super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
             }
-        }
 
-        ClassWriter writer = new ClassWriter(0/* ClassWriter.COMPUTE_FRAMES */);
-        node.accept(writer); // Convert back into bytes
-        return writer.toByteArray();
+            @Override
+            public void visitMaxs(int maxStack, int maxLocals) {
+                super.visitMaxs(maxStack + extraStack, maxLocals);
+            }
+        }
     }
 
     public static void remapStatic(MethodInsnNode insn) {
@@ -129,18 +207,14 @@ public class ReflectionTransformer {
         }
     }
 
-    private static void remapSuperClass(MethodInsnNode insn) {
-        Class<?> remappedClass = RemapRules.getSuperClassTarget(insn.owner);
-        if (remappedClass != null && insn.name.equals("<init>")) {
-            insn.owner = Type.getInternalName(remappedClass);
-        }
-    }
-
-    private static void remapScriptEngineManager(MethodInsnNode insn, MethodNode node) {
-        if (insn.owner.equals("javax/script/ScriptEngineManager") && insn.desc.equals("()V") && insn.name.equals("<init>")) {
-            insn.desc = "(Ljava/lang/ClassLoader;)V";
-            node.instructions.insertBefore(insn, new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/ClassLoader", "getSystemClassLoader", "()Ljava/lang/ClassLoader;"));
-            node.maxStack++;
+    /**
+     * Re-registers the rules {@link #transform(byte[])} adds as a side effect,
+     * for a class whose transformed bytes were loaded from the class cache
+     */
+    public static void restoreRules(byte[] code) {
+        ClassReader reader = new ClassReader(code);
+        if (Type.getInternalName(ProxyClassLoader.class).equals(reader.getSuperName())) {
+            RemapRules.addVirtualMethodTarget(reader.getClassName() + ";defineClass", ProxyClassLoader.class);
         }
     }
 }
@@ -3,7 +3,6 @@ package catserver.server.remapper;
 import catserver.server.CatServer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -14,6 +13,15 @@ import net.md_5.specialsource.JarRemapper;
 public class RemapUtils {
 
     private static Map<String, Boolean> classNeedRemap = new ConcurrentHashMap<>();
+    // The mappings never change at runtime, so the answers can be kept for the lifetime of the class.
+    // Keyed by name and descriptor, the parameter types may be plugin classes that must not be pinned.
+    private static final int MAX_CACHED_METHODS = 1024;
+    private static final ClassValue<Map<String, String>> mappedMethodCache = new ClassValue<Map<String, String>>() {
+        @Override
+        protected Map<String, String> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     // Classes
     public static String reverseMapExternal(Class<?> name) {
@@ -30,34 +38,44 @@ public class RemapUtils {
 
     // Methods
     public static String mapMethod(Class<?> inst, String name, Class<?>... parameterTypes) {
-        String result = mapMethodInternal(inst, name, parameterTypes);
-        if (result != null) {
-            return result;
+        if (parameterTypes == null) parameterTypes = new Class<?>[0];
+        Map<String, String> cache = mappedMethodCache.get(inst);
+        String key = getMethodKey(name, parameterTypes);
+        String result = cache.get(key);
+        if (result == null) {
+            result = mapMethodInternal(inst, name, parameterTypes);
+            if (result == null) {
+                result = name;
+            }
+            if (cache.size() < MAX_CACHED_METHODS) {
+                cache.put(key, result);
+            }
         }
-        return name;
+        return result;
+    }
+
+    private static String getMethodKey(String name, Class<?>[] parameterTypes) {
+        StringBuilder key = new StringBuilder(name).append('(');
+        for (Class<?> type : parameterTypes) {
+            key.append(Type.getDescriptor(type));
+        }
+        return key.append(')').toString();
     }
 
     /**
      * Recursive method for finding a method from superclasses/interfaces
      */
     public static String mapMethodInternal(Class<?> inst, String name, Class<?>... parameterTypes) {
-        String match = reverseMap(inst) + "/" + name;
-
-        Collection<String> colls = ReflectionTransformer.methodFastMapping.get(match);
-        for (String value : colls) {
-            String[] str = value.split("\\s+");
+        MappingIndex.MethodEntry[] entries = ReflectionTransformer.mappingIndex.getMethods(reverseMap(inst), name);
+        for (MappingIndex.MethodEntry entry : entries) {
+            if (entry.argNames.length != parameterTypes.length) continue;
             int i = 0;
-            for (Type type : Type.getArgumentTypes(str[1])) {
-                String typename = (type.getSort() == Type.ARRAY ? type.getInternalName() : type.getClassName());
-                if (i >= parameterTypes.length || !typename.equals(reverseMapExternal(parameterTypes[i]))) {
-                    i=-1;
-                    break;
-                }
+            while (i < parameterTypes.length && entry.argNames[i].equals(reverseMapExternal(parameterTypes[i]))) {
                 i++;
             }
 
-            if (i >= parameterTypes.length)
-                return ReflectionTransformer.jarMapping.methods.get(value);
+            if (i == parameterTypes.length)
+                return entry.mappedName;
         }
 
         // Search superclass
@@ -103,36 +121,14 @@ public class RemapUtils {
 
     public static String reverseFiled(Field field) {
         String name = field.getName();
-        String match = reverseMap(field.getDeclaringClass()) + "/";
-
-        Collection<String> colls = ReflectionTransformer.fieldReverseMapping.get(name);
-
-        for (String value : colls) {
-            if (value.startsWith(match)) {
-                String[] matched = value.split("\\/");
-                String rtr =  matched[matched.length - 1];
-                return rtr;
-            }
-        }
-
-        return name;
+        String original = ReflectionTransformer.mappingIndex.reverseFieldName(reverseMap(field.getDeclaringClass()), name);
+        return original != null ? original : name;
     }
 
     public static String reverseMethodName(Method method) {
         String name = method.getName();
-        String match = reverseMap(method.getDeclaringClass()) + "/";
-
-        Collection<String> colls = ReflectionTransformer.methodReverseMapping.get(name);
-
-        for (String value : colls) {
-            if (value.startsWith(match)) {
-                String[] matched = value.split("\\s+")[0].split("\\/");
-                String rtr = matched[matched.length - 1];
-                return rtr;
-            }
-        }
-
-        return name;
+        String original = ReflectionTransformer.mappingIndex.reverseMethodName(reverseMap(method.getDeclaringClass()), name);
+        return original != null ? original : name;
     }
 
     public static boolean isNeedRemapClass(Class<?> clazz, boolean checkSuperClass) {
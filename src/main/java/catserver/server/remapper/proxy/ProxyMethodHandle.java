@@ -4,25 +4,14 @@ import catserver.server.remapper.MappingLoader;
 import catserver.server.remapper.RemapRules;
 import catserver.server.remapper.RemapUtils;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.Map;
 
 public class ProxyMethodHandle {
-    private static HashMap<String, String> map = new HashMap<>();
-
-    static {
-        try {
-            ProxyMethodHandle.loadMappings(new BufferedReader(new InputStreamReader(MappingLoader.class.getClassLoader().getResourceAsStream("mappings/spigot2srg.srg"))));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
+    private static final Map<String, String> map = MappingLoader.getMethodDescriptors();
 
     // MethodHandles$Lookup.findStatic
     public static MethodHandle findStatic(MethodHandles.Lookup lookup, Class<?> refc, String name, MethodType type) throws NoSuchMethodException, IllegalAccessException {
@@ -125,21 +114,4 @@ public class ProxyMethodHandle {
 
         return remappedClass.getMethod(originalMethod.getName(), newParArr);
     }
-
-    private static void loadMappings(BufferedReader reader) throws IOException {
-        String line;
-        while ((line = reader.readLine()) != null) {
-            int commentIndex = line.indexOf('#');
-            if (commentIndex != -1) {
-                line = line.substring(0, commentIndex);
-            }
-            if (line.isEmpty() || !line.startsWith("MD: ")) {
-                continue;
-            }
-            String[] sp = line.split("\\s+");
-            String firDesc = sp[2];
-            String secDesc = sp[4];
-            map.put(firDesc, secDesc);
-        }
-    }
 }
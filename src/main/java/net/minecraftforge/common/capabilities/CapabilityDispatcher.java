@@ -8,6 +8,7 @@ package net.minecraftforge.common.capabilities;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,6 +37,11 @@ import net.minecraftforge.common.util.LazyOptional;
 @MethodsReturnNonnullByDefault
 public final class CapabilityDispatcher implements INBTSerializable<CompoundTag>, ICapabilityProvider
 {
+    // CatServer start - remember which provider answered each capability and side, opt-in as providers may change their answer without invalidating
+    private static final boolean LOOKUP_CACHE = Boolean.parseBoolean(System.getProperty("forge.capabilityLookupCache", "false"));
+    private static final CachedLookup[] NO_LOOKUPS = new CachedLookup[0];
+    private volatile CachedLookup[] lookups = NO_LOOKUPS;
+    // CatServer end
     private ICapabilityProvider[] caps;
     private INBTSerializable<Tag>[] writers;
     private String[] names;
@@ -82,8 +88,58 @@ public final class CapabilityDispatcher implements INBTSerializable<CompoundTag>
 
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> LazyOptional<T> getCapability(Capability<T> cap, @Nullable Direction side)
     {
+        // CatServer start
+        if (!LOOKUP_CACHE)
+        {
+            return lookup(cap, side);
+        }
+
+        for (CachedLookup cached : lookups)
+        {
+            if (cached.cap == cap && cached.side == side)
+            {
+                // A present result is only reused until its provider invalidates it
+                if (cached.result == LazyOptional.empty() || cached.result.isPresent())
+                {
+                    return (LazyOptional<T>) cached.result;
+                }
+                break;
+            }
+        }
+
+        LazyOptional<T> ret = lookup(cap, side);
+        cache(cap, side, ret);
+        return ret;
+    }
+
+    private synchronized void cache(Capability<?> cap, @Nullable Direction side, LazyOptional<?> result)
+    {
+        CachedLookup[] lookups = this.lookups;
+        int index = 0;
+        while (index < lookups.length && (lookups[index].cap != cap || lookups[index].side != side))
+        {
+            index++;
+        }
+        CachedLookup[] updated = Arrays.copyOf(lookups, Math.max(lookups.length, index + 1));
+        updated[index] = new CachedLookup(cap, side, result);
+        this.lookups = updated;
+    }
+
+    /**
+     * Forgets the cached capability lookups, for when a provider changes which
+     * capabilities it exposes without invalidating the old ones.
+     */
+    public void clearLookupCache()
+    {
+        this.lookups = NO_LOOKUPS;
+    }
+
+    private <T> LazyOptional<T> lookup(Capability<T> cap, @Nullable Direction side)
+    {
+        // CatServer end
         for (ICapabilityProvider c : caps)
         {
             LazyOptional<T> ret = c.getCapability(cap, side);
@@ -138,6 +194,24 @@ public final class CapabilityDispatcher implements INBTSerializable<CompoundTag>
 
     public void invalidate()
     {
+        this.clearLookupCache(); // CatServer
         this.listeners.forEach(Runnable::run);
     }
+
+    // CatServer start
+    private static final class CachedLookup
+    {
+        private final Capability<?> cap;
+        @Nullable
+        private final Direction side;
+        private final LazyOptional<?> result;
+
+        private CachedLookup(Capability<?> cap, @Nullable Direction side, LazyOptional<?> result)
+        {
+            this.cap = cap;
+            this.side = side;
+            this.result = result;
+        }
+    }
+    // CatServer end
 }
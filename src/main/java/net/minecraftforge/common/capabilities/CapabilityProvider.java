@@ -174,6 +174,8 @@ public abstract class CapabilityProvider<B extends ICapabilityProviderImpl<B>> i
     public void reviveCaps()
     {
         this.valid = true; //Stupid players don't copy the entity when transporting across worlds.
+        if (this.capabilities != null)
+            this.capabilities.clearLookupCache(); // CatServer
     }
 
     @Override
@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
@@ -703,6 +704,43 @@ public interface World extends RegionAccessor, WorldInfo, PluginMessageRecipient
     @NotNull
     public Collection<Entity> getNearbyEntities(@NotNull BoundingBox boundingBox, @Nullable Predicate<Entity> filter);
 
+    // CatServer start
+    /**
+     * Returns a list of entities of the given class within the given bounding
+     * box.
+     * <p>
+     * Entities of other classes are skipped before the filter is tested.
+     * This may not consider entities in currently unloaded chunks.
+     *
+     * @param <T> the type of entity to find
+     * @param boundingBox the bounding box
+     * @param cls the class of entity to find
+     * @param filter only entities that fulfill this predicate are considered,
+     *     or <code>null</code> to consider all entities of the class
+     * @return the collection of entities within the bounding box, will always
+     *     be a non-null collection
+     */
+    @NotNull
+    public <T extends Entity> Collection<T> getNearbyEntitiesByClass(@NotNull BoundingBox boundingBox, @NotNull Class<T> cls, @Nullable Predicate<? super T> filter);
+
+    /**
+     * Adds the entities of the given class within the given bounding box to
+     * a collection, so callers querying often can reuse one buffer.
+     * <p>
+     * Entities of other classes are skipped before the filter is tested.
+     * This may not consider entities in currently unloaded chunks.
+     *
+     * @param <T> the type of entity to find
+     * @param boundingBox the bounding box
+     * @param cls the class of entity to find
+     * @param filter only entities that fulfill this predicate are considered,
+     *     or <code>null</code> to consider all entities of the class
+     * @param result the collection the entities are added to
+     * @return the number of entities added
+     */
+    public <T extends Entity> int getNearbyEntitiesByClass(@NotNull BoundingBox boundingBox, @NotNull Class<T> cls, @Nullable Predicate<? super T> filter, @NotNull Collection<? super T> result);
+    // CatServer end
+
     /**
      * Performs a ray trace that checks for entity collisions.
      * <p>
@@ -1317,6 +1355,30 @@ public interface World extends RegionAccessor, WorldInfo, PluginMessageRecipient
     @NotNull
     public ChunkSnapshot getEmptyChunkSnapshot(int x, int z, boolean includeBiome, boolean includeBiomeTemp);
 
+    /**
+     * Gets a snapshot of the chunk at the given coordinates without loading
+     * it on the main thread.
+     * <p>
+     * A loaded chunk is captured on the main thread as by
+     * {@link Chunk#getChunkSnapshot(boolean, boolean, boolean)}. Otherwise the
+     * chunk is read from the world's region files on a worker thread and is
+     * neither loaded nor generated. Chunks that are not generated yet give an
+     * empty snapshot, and the future fails for chunks saved by an older
+     * version, which must be loaded once to be upgraded.
+     *
+     * @param x - chunk x coordinate
+     * @param z - chunk z coordinate
+     * @param includeMaxBlockY - if true, snapshot includes per-coordinate
+     *     maximum Y values
+     * @param includeBiome - if true, snapshot includes per-coordinate biome
+     *     type
+     * @param includeBiomeTemp - if true, snapshot includes per-coordinate
+     *     raw biome temperature
+     * @return a future completed with the snapshot, from any thread
+     */
+    @NotNull
+    public CompletableFuture<ChunkSnapshot> getChunkSnapshotAsync(int x, int z, boolean includeMaxBlockY, boolean includeBiome, boolean includeBiomeTemp); // CatServer
+
     /**
      * Sets the spawn flags for this.
      *
@@ -23,15 +23,16 @@ import org.bukkit.plugin.TimedRegisteredListener;
 import org.bukkit.util.StringUtil;
 import org.jetbrains.annotations.NotNull;
 import org.spigotmc.CustomTimingsHandler;
+import org.spigotmc.TickProfiler;
 
 public class TimingsCommand extends BukkitCommand {
-    private static final List<String> TIMINGS_SUBCOMMANDS = ImmutableList.of("report", "reset", "on", "off", "paste"); // Spigot
+    private static final List<String> TIMINGS_SUBCOMMANDS = ImmutableList.of("report", "reset", "on", "off", "paste", "flame"); // Spigot // CatServer - flame
     public static long timingStart = 0; // Spigot
 
     public TimingsCommand(@NotNull String name) {
         super(name);
         this.description = "Manages Spigot Timings data to see performance of the server."; // Spigot
-        this.usageMessage = "/timings <reset|report|on|off|paste>"; // Spigot
+        this.usageMessage = "/timings <reset|report|on|off|paste|flame>"; // Spigot // CatServer - flame
         this.setPermission("bukkit.command.timings");
     }
 
@@ -55,6 +56,21 @@ public class TimingsCommand extends BukkitCommand {
         if ("reset".equals(args[0])) {
             CustomTimingsHandler.reload();
             sender.sendMessage("Timings reset");
+        // CatServer start - flame graph of the last ticks
+        } else if ("flame".equals(args[0])) {
+            int index = 0;
+            File timingFolder = new File("timings");
+            timingFolder.mkdirs();
+            File flame = new File(timingFolder, "flame.folded");
+            while (flame.exists()) flame = new File(timingFolder, "flame" + (++index) + ".folded");
+            try (PrintStream out = new PrintStream(flame)) {
+                TickProfiler.writeFolded(out);
+                sender.sendMessage("Call tree of the last " + TickProfiler.getHistorySize() + " ticks (of " + TickProfiler.getHistoryTicks() + " configured) written to " + flame.getPath());
+                sender.sendMessage("Open it with speedscope or flamegraph.pl, times are in microseconds.");
+            } catch (IOException e) {
+                Bukkit.getServer().getLogger().log(Level.WARNING, "Could not write flame graph", e);
+            }
+        // CatServer end
         } else if ("merged".equals(args[0]) || "report".equals(args[0]) || paste) {
             long sampleTime = System.nanoTime() - timingStart;
             int index = 0;
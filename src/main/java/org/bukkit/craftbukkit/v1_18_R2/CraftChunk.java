@@ -2,6 +2,7 @@ package org.bukkit.craftbukkit.v1_18_R2;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Collection;
@@ -11,11 +12,14 @@ import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 
 import com.mojang.serialization.Codec;
+import net.minecraft.SharedConstants;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
 import net.minecraft.core.SectionPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.Tag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.thread.ProcessorMailbox;
 import net.minecraft.world.level.ChunkPos;
@@ -28,7 +32,10 @@ import net.minecraft.world.level.chunk.DataLayer;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.chunk.LevelChunkSection;
 import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.chunk.ProtoChunk;
+import net.minecraft.world.level.chunk.UpgradeData;
 import net.minecraft.world.level.chunk.storage.ChunkSerializer;
+import net.minecraft.world.level.chunk.storage.ChunkStorage;
 import net.minecraft.world.level.chunk.storage.EntityStorage;
 import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.level.levelgen.WorldgenRandom;
@@ -44,6 +51,7 @@ import org.bukkit.craftbukkit.v1_18_R2.block.data.CraftBlockData;
 import org.bukkit.entity.Entity;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.plugin.Plugin;
+import org.spigotmc.SpigotConfig;
 
 public class CraftChunk implements Chunk {
     private WeakReference<net.minecraft.world.level.chunk.LevelChunk> weakChunk;
@@ -52,6 +60,7 @@ public class CraftChunk implements Chunk {
     private final int z;
     private static final PalettedContainer<net.minecraft.world.level.block.state.BlockState> emptyBlockIDs = new PalettedContainer<>(net.minecraft.world.level.block.Block.BLOCK_STATE_REGISTRY, Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
     private static final byte[] emptyLight = new byte[2048];
+    private volatile SharedSections sharedSections; // CatServer
 
     public CraftChunk(net.minecraft.world.level.chunk.LevelChunk chunk) {
         this.weakChunk = new WeakReference<net.minecraft.world.level.chunk.LevelChunk>(chunk);
@@ -294,13 +303,18 @@ public class CraftChunk implements Chunk {
         PalettedContainer<Holder<Biome>>[] biome = (includeBiome || includeBiomeTempRain) ? new PalettedContainer[cs.length] : null;
 
         net.minecraft.core.Registry<Biome> iregistry = worldServer.registryAccess().registryOrThrow(net.minecraft.core.Registry.BIOME_REGISTRY);
-        Codec<PalettedContainer<Holder<Biome>>> biomeCodec = PalettedContainer.codec(iregistry.asHolderIdMap(), iregistry.holderByNameCodec(), PalettedContainer.Strategy.SECTION_BIOMES, iregistry.getHolderOrThrow(Biomes.PLAINS));
 
-        for (int i = 0; i < cs.length; i++) {
-            CompoundTag data = new CompoundTag();
+        // CatServer start - copy the palettes directly instead of round tripping through NBT, reuse the last copies if no block or biome changed since
+        final int modCount = chunk.sectionModCount;
+        SharedSections shared = SpigotConfig.shareChunkSnapshots ? this.sharedSections : null;
+        if (shared != null && (shared.modCount != modCount || shared.blockIDs.length != cs.length)) {
+            shared = null;
+        }
 
-            data.put("block_states", ChunkSerializer.BLOCK_STATE_CODEC.encodeStart(NbtOps.INSTANCE, cs[i].getStates()).get().left().get());
-            sectionBlockIDs[i] = ChunkSerializer.BLOCK_STATE_CODEC.parse(NbtOps.INSTANCE, data.getCompound("block_states")).get().left().get();
+        for (int i = 0; i < cs.length; i++) {
+            sectionBlockIDs[i] = shared != null ? shared.blockIDs[i] : cs[i].getStates().copy();
+            sectionEmpty[i] = cs[i].hasOnlyAir();
+            // CatServer end
 
             LevelLightEngine lightengine = chunk.level.getLightEngine();
             DataLayer skyLightArray = lightengine.getLayerListener(LightLayer.SKY).getDataLayerData(SectionPos.of(x, i, z));
@@ -319,11 +333,16 @@ public class CraftChunk implements Chunk {
             }
 
             if (biome != null) {
-                data.put("biomes", biomeCodec.encodeStart(NbtOps.INSTANCE, cs[i].getBiomes()).get().left().get());
-                biome[i] = biomeCodec.parse(NbtOps.INSTANCE, data.getCompound("biomes")).get().left().get();
+                biome[i] = shared != null && shared.biomes != null ? shared.biomes[i] : cs[i].getBiomes().copy(); // CatServer
             }
         }
 
+        // CatServer start
+        if (SpigotConfig.shareChunkSnapshots) {
+            this.sharedSections = new SharedSections(modCount, sectionBlockIDs, biome != null ? biome : shared != null ? shared.biomes : null);
+        }
+        // CatServer end
+
         Heightmap hmap = null;
 
         if (includeMaxBlockY) {
@@ -366,6 +385,106 @@ public class CraftChunk implements Chunk {
         return new CraftChunkSnapshot(x, z, world.getMinHeight(), world.getMaxHeight(), world.getName(), world.getFullTime(), blockIDs, skyLight, emitLight, empty, new Heightmap(actual, Heightmap.Types.MOTION_BLOCKING), iregistry, biome);
     }
 
+    // CatServer start
+    /**
+     * Creates a snapshot of a chunk read from its region file, on any thread.
+     * A chunk that is not fully generated gives an empty snapshot.
+     *
+     * @param tag the chunk as stored, or null if it was never saved
+     * @throws IOException if the chunk was saved by an older version and
+     *     needs to be loaded to be upgraded first
+     */
+    static ChunkSnapshot readChunkSnapshot(CraftWorld world, int x, int z, CompoundTag tag, boolean includeMaxBlockY, boolean includeBiome, boolean includeBiomeTempRain) throws IOException {
+        ServerLevel level = world.getHandle();
+        ChunkPos pos = new ChunkPos(x, z);
+        if (tag == null || ChunkSerializer.getChunkTypeFromTag(tag) != ChunkStatus.ChunkType.LEVELCHUNK) {
+            // Nothing to read, every section below is left empty
+            tag = new CompoundTag();
+        } else if (ChunkStorage.getVersion(tag) != SharedConstants.getCurrentVersion().getWorldVersion()) {
+            throw new IOException("Chunk " + x + ", " + z + " in " + world.getName() + " was saved by an older version, it must be loaded to be upgraded first");
+        }
+
+        int hSection = level.getSectionsCount();
+        PalettedContainer[] blockIDs = new PalettedContainer[hSection];
+        byte[][] skyLight = new byte[hSection][];
+        byte[][] emitLight = new byte[hSection][];
+        boolean[] empty = new boolean[hSection];
+        net.minecraft.core.Registry<Biome> iregistry = level.registryAccess().registryOrThrow(net.minecraft.core.Registry.BIOME_REGISTRY);
+        PalettedContainer<Holder<Biome>>[] biome = (includeBiome || includeBiomeTempRain) ? new PalettedContainer[hSection] : null;
+        Codec<PalettedContainer<Holder<Biome>>> biomeCodec = PalettedContainer.codec(iregistry.asHolderIdMap(), iregistry.holderByNameCodec(), PalettedContainer.Strategy.SECTION_BIOMES, iregistry.getHolderOrThrow(Biomes.PLAINS));
+
+        ListTag sections = tag.getList("sections", Tag.TAG_COMPOUND);
+        for (int j = 0; j < sections.size(); j++) {
+            CompoundTag section = sections.getCompound(j);
+            int i = level.getSectionIndexFromSectionY(section.getByte("Y"));
+            if (i < 0 || i >= hSection) {
+                continue;
+            }
+
+            if (section.contains("block_states", Tag.TAG_COMPOUND)) {
+                blockIDs[i] = ChunkSerializer.BLOCK_STATE_CODEC.parse(NbtOps.INSTANCE, section.getCompound("block_states")).result().orElse(null);
+            }
+            if (section.contains("SkyLight", Tag.TAG_BYTE_ARRAY)) {
+                skyLight[i] = section.getByteArray("SkyLight");
+            }
+            if (section.contains("BlockLight", Tag.TAG_BYTE_ARRAY)) {
+                emitLight[i] = section.getByteArray("BlockLight");
+            }
+            if (biome != null && section.contains("biomes", Tag.TAG_COMPOUND)) {
+                biome[i] = biomeCodec.parse(NbtOps.INSTANCE, section.getCompound("biomes")).result().orElse(null);
+            }
+        }
+
+        for (int i = 0; i < hSection; i++) {
+            if (blockIDs[i] == null) {
+                blockIDs[i] = emptyBlockIDs;
+            }
+            // As for loaded chunks, stored sections may hold only air too
+            empty[i] = !blockIDs[i].maybeHas(state -> !state.isAir());
+            if (skyLight[i] == null) {
+                skyLight[i] = emptyLight;
+            }
+            if (emitLight[i] == null) {
+                emitLight[i] = emptyLight;
+            }
+            if (biome != null && biome[i] == null) {
+                biome[i] = new PalettedContainer<>(iregistry.asHolderIdMap(), iregistry.getHolderOrThrow(Biomes.PLAINS), PalettedContainer.Strategy.SECTION_BIOMES);
+            }
+        }
+
+        Heightmap hmap = null;
+
+        if (includeMaxBlockY) {
+            // Only used for the height of the world
+            ChunkAccess heightAccessor = new ProtoChunk(pos, UpgradeData.EMPTY, level, iregistry, null);
+            hmap = new Heightmap(heightAccessor, Heightmap.Types.MOTION_BLOCKING);
+            CompoundTag heightmaps = tag.getCompound("Heightmaps");
+            String key = Heightmap.Types.MOTION_BLOCKING.getSerializationKey();
+            if (heightmaps.contains(key, Tag.TAG_LONG_ARRAY)) {
+                hmap.setRawData(heightAccessor, Heightmap.Types.MOTION_BLOCKING, heightmaps.getLongArray(key));
+            }
+        }
+
+        return new CraftChunkSnapshot(x, z, level.getMinBuildHeight(), level.getMaxBuildHeight(), world.getName(), world.getFullTime(), blockIDs, skyLight, emitLight, empty, hmap, iregistry, biome);
+    }
+
+    /**
+     * Section copies handed out to snapshots, snapshots only read them so they
+     * can be shared until the chunk changes.
+     */
+    private static final class SharedSections {
+        private final int modCount;
+        private final PalettedContainer<net.minecraft.world.level.block.state.BlockState>[] blockIDs;
+        private final PalettedContainer<Holder<Biome>>[] biomes;
+
+        private SharedSections(int modCount, PalettedContainer<net.minecraft.world.level.block.state.BlockState>[] blockIDs, PalettedContainer<Holder<Biome>>[] biomes) {
+            this.modCount = modCount;
+            this.blockIDs = blockIDs;
+            this.biomes = biomes;
+        }
+    }
+    // CatServer end
+
     static void validateChunkCoordinates(int minY, int maxY, int x, int y, int z) {
         Preconditions.checkArgument(0 <= x && x <= 15, "x out of range (expected 0-15, got %s)", x);
         Preconditions.checkArgument(minY <= y && y <= maxY, "y out of range (expected %s-%s, got %s)", minY, maxY, y);
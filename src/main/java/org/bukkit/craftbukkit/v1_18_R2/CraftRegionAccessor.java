@@ -32,6 +32,7 @@ import org.bukkit.block.BlockState;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.craftbukkit.v1_18_R2.block.CraftBlock;
 import org.bukkit.craftbukkit.v1_18_R2.block.data.CraftBlockData;
+import org.bukkit.craftbukkit.v1_18_R2.entity.CraftEntity;
 import org.bukkit.craftbukkit.v1_18_R2.inventory.CraftItemStack;
 import org.bukkit.craftbukkit.v1_18_R2.potion.CraftPotionUtil;
 import org.bukkit.craftbukkit.v1_18_R2.util.BlockStateListPopulator;
@@ -408,15 +409,15 @@ public abstract class CraftRegionAccessor implements RegionAccessor {
         Collection<T> list = new ArrayList<T>();
 
         getNMSEntities().forEach(entity -> {
-            Entity bukkitEntity = entity.getBukkitEntity();
-
-            if (bukkitEntity == null) {
+            // CatServer start - check the class before wrapping
+            if (!CraftEntity.isInstance(clazz, entity)) {
                 return;
             }
 
-            Class<?> bukkitClass = bukkitEntity.getClass();
+            Entity bukkitEntity = entity.getBukkitEntity();
+            // CatServer end
 
-            if (clazz.isAssignableFrom(bukkitClass) && (!isNormalWorld() || bukkitEntity.isValid())) {
+            if (!isNormalWorld() || bukkitEntity.isValid()) {
                 list.add((T) bukkitEntity);
             }
         });
@@ -429,16 +430,9 @@ public abstract class CraftRegionAccessor implements RegionAccessor {
         Collection<Entity> list = new ArrayList<Entity>();
 
         getNMSEntities().forEach(entity -> {
-            Entity bukkitEntity = entity.getBukkitEntity();
-
-            if (bukkitEntity == null) {
-                return;
-            }
-
-            Class<?> bukkitClass = bukkitEntity.getClass();
-
             for (Class<?> clazz : classes) {
-                if (clazz.isAssignableFrom(bukkitClass)) {
+                if (CraftEntity.isInstance(clazz, entity)) { // CatServer - check the class before wrapping
+                    Entity bukkitEntity = entity.getBukkitEntity();
                     if (!isNormalWorld() || bukkitEntity.isValid()) {
                         list.add(bukkitEntity);
                     }
@@ -1,6 +1,7 @@
 package org.bukkit.craftbukkit.v1_18_R2;
 
 import catserver.server.BukkitInjector;
+import catserver.server.remapper.PluginClassCache;
 import catserver.server.remapper.ReflectionTransformer;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
@@ -104,6 +105,7 @@ import org.bukkit.craftbukkit.v1_18_R2.generator.OldCraftChunkData;
 import org.bukkit.craftbukkit.v1_18_R2.help.SimpleHelpMap;
 import org.bukkit.craftbukkit.v1_18_R2.inventory.*;
 import org.bukkit.craftbukkit.v1_18_R2.inventory.util.CraftInventoryCreator;
+import org.bukkit.craftbukkit.v1_18_R2.map.CraftMapColorCache;
 import org.bukkit.craftbukkit.v1_18_R2.map.CraftMapView;
 import org.bukkit.craftbukkit.v1_18_R2.metadata.EntityMetadataStore;
 import org.bukkit.craftbukkit.v1_18_R2.metadata.PlayerMetadataStore;
@@ -135,6 +137,7 @@ import org.bukkit.generator.WorldInfo;
 import org.bukkit.help.HelpMap;
 import org.bukkit.inventory.*;
 import org.bukkit.loot.LootTable;
+import org.bukkit.map.MapPalette;
 import org.bukkit.map.MapView;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.Permission;
@@ -279,6 +282,12 @@ public final class CraftServer implements Server {
         TicketType.PLUGIN.timeout = configuration.getInt("chunk-gc.period-in-ticks");
         minimumAPI = configuration.getString("settings.minimum-api");
         loadIcon();
+
+        // CatServer start
+        if (org.spigotmc.SpigotConfig.mapColorCache) {
+            MapPalette.setMapColorCache(new CraftMapColorCache(getLogger(), org.spigotmc.SpigotConfig.mapColorCacheSave ? new File("map-color-cache.dat") : null));
+        }
+        // CatServer end
     }
 
     public boolean getCommandBlockOverride(String command) {
@@ -365,11 +374,13 @@ public final class CraftServer implements Server {
             loadCustomPermissions();
             helpMap.initializeCommands();
             syncCommands();
+            PluginClassCache.logStatistics(); // CatServer
         }
     }
 
     public void disablePlugins() {
         pluginManager.disablePlugins();
+        scheduler.shutdownAsyncExecutor(); // CatServer
     }
 
     private void setVanillaCommands(boolean first) { // Spigot
@@ -1102,6 +1113,7 @@ public final class CraftServer implements Server {
 
         worlds.remove(world.getName().toLowerCase(java.util.Locale.ENGLISH));
         console.levels.remove(handle.dimension());
+        worldMetadata.removeAll(world); // CatServer
         return true;
     }
 
@@ -1,9 +1,9 @@
 package org.bukkit.craftbukkit.v1_18_R2;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
@@ -20,6 +20,10 @@ import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import net.minecraft.core.BlockPos;
@@ -32,6 +36,7 @@ import net.minecraft.network.protocol.game.ClientboundLevelEventPacket;
 import net.minecraft.network.protocol.game.ClientboundSetTimePacket;
 import net.minecraft.network.protocol.game.ClientboundSoundEntityPacket;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.*;
 import net.minecraft.sounds.SoundSource;
 import net.minecraft.tags.TagKey;
@@ -128,6 +133,7 @@ import org.jetbrains.annotations.Nullable;
 public class CraftWorld extends CraftRegionAccessor implements World {
     public static final int CUSTOM_DIMENSION_OFFSET = 10;
     private static final CraftPersistentDataTypeRegistry DATA_TYPE_REGISTRY = new CraftPersistentDataTypeRegistry();
+    private static final Executor SNAPSHOT_EXECUTOR = Executors.newFixedThreadPool(2, new ThreadFactoryBuilder().setNameFormat("Chunk Snapshot Reader #%d").setDaemon(true).build()); // CatServer
 
     private final ServerLevel world;
     private WorldBorder worldBorder;
@@ -763,6 +769,7 @@ public class CraftWorld extends CraftRegionAccessor implements World {
                 chunk.setBiome(x >> 2, y >> 2, z >> 2, bb);
 
                 chunk.setUnsaved(true); // SPIGOT-2890
+                chunk.sectionModCount++; // CatServer
             }
         }
     }
@@ -829,19 +836,56 @@ public class CraftWorld extends CraftRegionAccessor implements World {
         org.spigotmc.AsyncCatcher.catchOp("getNearbyEntities"); // Spigot
         Validate.notNull(boundingBox, "Bounding box is null!");
 
-        AABB bb = new AABB(boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ(), boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ());
-        List<net.minecraft.world.entity.Entity> entityList = getHandle().getEntities((net.minecraft.world.entity.Entity) null, bb, Predicates.alwaysTrue());
-        List<Entity> bukkitEntityList = new ArrayList<org.bukkit.entity.Entity>(entityList.size());
+        // CatServer start - visit the sections directly instead of collecting the entities first
+        List<Entity> bukkitEntityList = new ArrayList<org.bukkit.entity.Entity>();
+        this.getNearbyEntitiesByClass(boundingBox, Entity.class, filter, bukkitEntityList);
+        return bukkitEntityList;
+        // CatServer end
+    }
+
+    // CatServer start
+    @Override
+    public <T extends Entity> Collection<T> getNearbyEntitiesByClass(BoundingBox boundingBox, Class<T> cls, Predicate<? super T> filter) {
+        List<T> bukkitEntityList = new ArrayList<T>();
+        this.getNearbyEntitiesByClass(boundingBox, cls, filter, bukkitEntityList);
+        return bukkitEntityList;
+    }
 
-        for (net.minecraft.world.entity.Entity entity : entityList) {
-            Entity bukkitEntity = entity.getBukkitEntity();
-            if (filter == null || filter.test(bukkitEntity)) {
-                bukkitEntityList.add(bukkitEntity);
+    @Override
+    public <T extends Entity> int getNearbyEntitiesByClass(BoundingBox boundingBox, Class<T> cls, Predicate<? super T> filter, Collection<? super T> result) {
+        org.spigotmc.AsyncCatcher.catchOp("getNearbyEntities"); // Spigot
+        Validate.notNull(boundingBox, "Bounding box is null!");
+        Validate.notNull(cls, "Class is null!");
+        Validate.notNull(result, "Result is null!");
+
+        AABB bb = new AABB(boundingBox.getMinX(), boundingBox.getMinY(), boundingBox.getMinZ(), boundingBox.getMaxX(), boundingBox.getMaxY(), boundingBox.getMaxZ());
+        int size = result.size();
+        // The filter is plugin code that may add, remove or move entities, so it only runs once the sections are iterated
+        List<T> matches = filter != null ? new ArrayList<T>() : null;
+        Collection<? super T> target = matches != null ? matches : result;
+        getHandle().getEntities().get(bb, entity -> collectEntity(entity, cls, target));
+        // Same as Level.getEntities
+        for (net.minecraftforge.entity.PartEntity<?> part : getHandle().getPartEntities()) {
+            if (part.getBoundingBox().intersects(bb)) {
+                collectEntity(part, cls, target);
+            }
+        }
+        if (matches != null) {
+            for (T entity : matches) {
+                if (filter.test(entity)) {
+                    result.add(entity);
+                }
             }
         }
+        return result.size() - size;
+    }
 
-        return bukkitEntityList;
+    private static <T extends Entity> void collectEntity(net.minecraft.world.entity.Entity entity, Class<T> cls, Collection<? super T> result) {
+        if (cls == Entity.class || CraftEntity.isInstance(cls, entity)) {
+            result.add((T) entity.getBukkitEntity());
+        }
     }
+    // CatServer end
 
     @Override
     public RayTraceResult rayTraceEntities(Location start, Vector direction, double maxDistance) {
@@ -1194,6 +1238,30 @@ public class CraftWorld extends CraftRegionAccessor implements World {
         return CraftChunk.getEmptyChunkSnapshot(x, z, this, includeBiome, includeBiomeTempRain);
     }
 
+    // CatServer start
+    @Override
+    public CompletableFuture<ChunkSnapshot> getChunkSnapshotAsync(int x, int z, boolean includeMaxBlockY, boolean includeBiome, boolean includeBiomeTempRain) {
+        MinecraftServer server = MinecraftServer.getServer();
+        if (!server.isSameThread()) {
+            return CompletableFuture.supplyAsync(() -> getChunkSnapshotAsync(x, z, includeMaxBlockY, includeBiome, includeBiomeTempRain), server).thenCompose(future -> future);
+        }
+
+        net.minecraft.world.level.chunk.LevelChunk chunk = world.getChunkSource().getChunkNow(x, z);
+        if (chunk != null) {
+            return CompletableFuture.completedFuture(chunk.getBukkitChunk().getChunkSnapshot(includeMaxBlockY, includeBiome, includeBiomeTempRain));
+        }
+
+        // Read by the region file IO worker, decoded on our own threads rather than the worldgen pool
+        return world.getChunkSource().chunkMap.getIOWorker().loadAsync(new ChunkPos(x, z)).thenApplyAsync(tag -> {
+            try {
+                return CraftChunk.readChunkSnapshot(this, x, z, tag, includeMaxBlockY, includeBiome, includeBiomeTempRain);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, SNAPSHOT_EXECUTOR);
+    }
+    // CatServer end
+
     @Override
     public void setSpawnFlags(boolean allowMonsters, boolean allowAnimals) {
         world.setSpawnSettings(allowMonsters, allowAnimals);
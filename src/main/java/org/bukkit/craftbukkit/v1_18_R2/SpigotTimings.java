@@ -1,6 +1,6 @@
 package org.bukkit.craftbukkit.v1_18_R2;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.level.Level;
@@ -36,9 +36,22 @@ public class SpigotTimings {
     public static final CustomTimingsHandler playerCommandTimer = new CustomTimingsHandler("** playerCommand");
     public static final CustomTimingsHandler entityActivationCheckTimer = new CustomTimingsHandler("entityActivationCheck");
     public static final CustomTimingsHandler checkIfActiveTimer = new CustomTimingsHandler("** checkIfActive");
-    public static final HashMap<String, CustomTimingsHandler> entityTypeTimingMap = new HashMap<String, CustomTimingsHandler>();
-    public static final HashMap<String, CustomTimingsHandler> tileEntityTypeTimingMap = new HashMap<String, CustomTimingsHandler>();
-    public static final HashMap<String, CustomTimingsHandler> pluginTaskTimingMap = new HashMap<String, CustomTimingsHandler>();
+    // CatServer start - entities and block entities are also created off the main thread by world gen
+    private static final ClassValue<CustomTimingsHandler> entityTypeTimings = new ClassValue<CustomTimingsHandler>() {
+        @Override
+        protected CustomTimingsHandler computeValue(Class<?> type) {
+            return new CustomTimingsHandler("** tickEntity - " + type.getSimpleName(), activatedEntityTimer);
+        }
+    };
+    private static final ClassValue<CustomTimingsHandler> tileEntityTypeTimings = new ClassValue<CustomTimingsHandler>() {
+        @Override
+        protected CustomTimingsHandler computeValue(Class<?> type) {
+            return new CustomTimingsHandler("** tickTileEntity - " + type.getSimpleName(), tickTileEntityTimer);
+        }
+    };
+    public static final ConcurrentHashMap<String, CustomTimingsHandler> pluginTimingMap = new ConcurrentHashMap<String, CustomTimingsHandler>();
+    public static final ConcurrentHashMap<String, CustomTimingsHandler> pluginTaskTimingMap = new ConcurrentHashMap<String, CustomTimingsHandler>();
+    // CatServer end
 
     /**
      * Gets a timer associated with a plugins tasks.
@@ -65,12 +78,10 @@ public class SpigotTimings {
         } else {
             name += "(Single)";
         }
-        CustomTimingsHandler result = pluginTaskTimingMap.get(name);
-        if (result == null) {
-            result = new CustomTimingsHandler(name, SpigotTimings.schedulerSyncTimer);
-            pluginTaskTimingMap.put(name, result);
-        }
-        return result;
+        // CatServer start - group tasks by plugin
+        CustomTimingsHandler parent = pluginTimingMap.computeIfAbsent(plugin, key -> new CustomTimingsHandler("Plugin: " + key, SpigotTimings.schedulerSyncTimer));
+        return pluginTaskTimingMap.computeIfAbsent(name, key -> new CustomTimingsHandler(key, parent));
+        // CatServer end
     }
 
     /**
@@ -80,13 +91,7 @@ public class SpigotTimings {
      * @return
      */
     public static CustomTimingsHandler getEntityTimings(Entity entity) {
-        String entityType = entity.getClass().getName();
-        CustomTimingsHandler result = entityTypeTimingMap.get(entityType);
-        if (result == null) {
-            result = new CustomTimingsHandler("** tickEntity - " + entity.getClass().getSimpleName(), activatedEntityTimer);
-            entityTypeTimingMap.put(entityType, result);
-        }
-        return result;
+        return entityTypeTimings.get(entity.getClass()); // CatServer
     }
 
     /**
@@ -96,13 +101,7 @@ public class SpigotTimings {
      * @return
      */
     public static CustomTimingsHandler getTileEntityTimings(BlockEntity entity) {
-        String entityType = entity.getClass().getName();
-        CustomTimingsHandler result = tileEntityTypeTimingMap.get(entityType);
-        if (result == null) {
-            result = new CustomTimingsHandler("** tickTileEntity - " + entity.getClass().getSimpleName(), tickTileEntityTimer);
-            tileEntityTypeTimingMap.put(entityType, result);
-        }
-        return result;
+        return tileEntityTypeTimings.get(entity.getClass()); // CatServer
     }
 
     /**
@@ -62,12 +62,15 @@ import org.bukkit.util.NumberConversions;
 import org.bukkit.util.Vector;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class CraftEntity implements org.bukkit.entity.Entity {
     private static PermissibleBase perm;
     private static final CraftPersistentDataTypeRegistry DATA_TYPE_REGISTRY = new CraftPersistentDataTypeRegistry();
+    private static final Map<Class<?>, Class<?>> BUKKIT_CLASSES = new ConcurrentHashMap<>(); // CatServer
 
     protected final CraftServer server;
     protected Entity entity;
@@ -441,6 +444,31 @@ public abstract class CraftEntity implements org.bukkit.entity.Entity {
         throw new AssertionError("Unknown entity " + (entity == null ? null : entity.getClass()));
     }
 
+    // CatServer start
+    /**
+     * Checks whether the Bukkit entity of the given entity is an instance of
+     * the class. The wrappers for an entity class are always of the same
+     * class, so once seen, entities of that class are checked without
+     * creating their wrappers.
+     *
+     * @param clazz the Bukkit class
+     * @param entity the entity
+     * @return whether the Bukkit entity is an instance of the class
+     */
+    public static boolean isInstance(Class<?> clazz, Entity entity) {
+        Class<?> bukkitClass = BUKKIT_CLASSES.get(entity.getClass());
+        if (bukkitClass == null) {
+            CraftEntity bukkitEntity = entity.getBukkitEntity();
+            if (bukkitEntity == null) {
+                return false;
+            }
+            bukkitClass = bukkitEntity.getClass();
+            BUKKIT_CLASSES.put(entity.getClass(), bukkitClass);
+        }
+        return clazz.isAssignableFrom(bukkitClass);
+    }
+    // CatServer end
+
     @Override
     public Location getLocation() {
         return new Location(getWorld(), entity.getX(), entity.getY(), entity.getZ(), entity.getBukkitYaw(), entity.getXRot());
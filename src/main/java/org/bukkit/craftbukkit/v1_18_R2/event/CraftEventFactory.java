@@ -1611,12 +1611,14 @@ public class CraftEventFactory {
     }
 
     public static void callEntitiesLoadEvent(Level world, ChunkPos coords, List<Entity> entities) {
+        if (!EntitiesLoadEvent.getHandlerList().hasRegisteredListeners()) return; // CatServer - skip wrapping every entity of the chunk
         List<org.bukkit.entity.Entity> bukkitEntities = Collections.unmodifiableList(entities.stream().map(Entity::getBukkitEntity).collect(Collectors.toList()));
         EntitiesLoadEvent event = new EntitiesLoadEvent(new CraftChunk((ServerLevel) world, coords.x, coords.z), bukkitEntities);
         Bukkit.getPluginManager().callEvent(event);
     }
 
     public static void callEntitiesUnloadEvent(Level world, ChunkPos coords, List<Entity> entities) {
+        if (!EntitiesUnloadEvent.getHandlerList().hasRegisteredListeners()) return; // CatServer - skip wrapping every entity of the chunk
         List<org.bukkit.entity.Entity> bukkitEntities = Collections.unmodifiableList(entities.stream().map(Entity::getBukkitEntity).collect(Collectors.toList()));
         EntitiesUnloadEvent event = new EntitiesUnloadEvent(new CraftChunk((ServerLevel) world, coords.x, coords.z), bukkitEntities);
         Bukkit.getPluginManager().callEvent(event);
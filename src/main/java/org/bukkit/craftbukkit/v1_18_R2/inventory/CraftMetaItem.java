@@ -291,7 +291,7 @@ class CraftMetaItem implements ItemMeta, Damageable, Repairable, BlockDataMeta {
         this.unbreakable = meta.unbreakable;
         this.damage = meta.damage;
         this.unhandledTags.putAll(meta.unhandledTags);
-        this.persistentDataContainer.putAll(meta.persistentDataContainer.getRaw());
+        this.persistentDataContainer = new CraftPersistentDataContainer(meta.persistentDataContainer); // CatServer - copy on write
 
         this.internalTag = meta.internalTag;
         if (this.internalTag != null) {
@@ -347,11 +347,10 @@ class CraftMetaItem implements ItemMeta, Damageable, Repairable, BlockDataMeta {
             damage = tag.getInt(DAMAGE.NBT);
         }
         if (tag.contains(BUKKIT_CUSTOM_TAG.NBT)) {
-            CompoundTag compound = tag.getCompound(BUKKIT_CUSTOM_TAG.NBT);
-            Set<String> keys = compound.getAllKeys();
-            for (String key : keys) {
-                persistentDataContainer.put(key, compound.get(key).copy());
-            }
+            // CatServer start - read through a copy until changed, the item's own compound may be mutated in place by mods
+            CompoundTag compound = tag.getCompound(BUKKIT_CUSTOM_TAG.NBT).copy();
+            persistentDataContainer = new CraftPersistentDataContainer(compound, DATA_TYPE_REGISTRY);
+            // CatServer end
         }
 
         Set<String> keys = tag.getAllKeys();
@@ -625,13 +624,7 @@ class CraftMetaItem implements ItemMeta, Damageable, Repairable, BlockDataMeta {
         }
 
         if (!persistentDataContainer.isEmpty()) {
-            CompoundTag bukkitCustomCompound = new CompoundTag();
-            Map<String, Tag> rawPublicMap = persistentDataContainer.getRaw();
-
-            for (Map.Entry<String, Tag> nbtBaseEntry : rawPublicMap.entrySet()) {
-                bukkitCustomCompound.put(nbtBaseEntry.getKey(), nbtBaseEntry.getValue());
-            }
-            itemTag.put(BUKKIT_CUSTOM_TAG.NBT, bukkitCustomCompound);
+            itemTag.put(BUKKIT_CUSTOM_TAG.NBT, persistentDataContainer.toTagCompound()); // CatServer
         }
     }
 
@@ -1179,7 +1172,7 @@ class CraftMetaItem implements ItemMeta, Damageable, Repairable, BlockDataMeta {
             if (this.hasAttributeModifiers()) {
                 clone.attributeModifiers = LinkedHashMultimap.create(this.attributeModifiers);
             }
-            clone.persistentDataContainer = new CraftPersistentDataContainer(this.persistentDataContainer.getRaw(), DATA_TYPE_REGISTRY);
+            clone.persistentDataContainer = new CraftPersistentDataContainer(this.persistentDataContainer); // CatServer - copy on write
             clone.hideFlag = this.hideFlag;
             clone.unbreakable = this.unbreakable;
             clone.damage = this.damage;
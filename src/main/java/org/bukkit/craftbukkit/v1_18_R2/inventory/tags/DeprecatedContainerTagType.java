@@ -36,7 +36,7 @@ public final class DeprecatedContainerTagType<Z> implements PersistentDataType<P
         Validate.isInstanceOf(CraftPersistentDataContainer.class, wrapped, "Could not wrap deprecated API due to wrong deprecation wrapper %s", deprecated.getClass().getSimpleName());
 
         CraftPersistentDataContainer craftTagContainer = (CraftPersistentDataContainer) wrapped;
-        return new CraftPersistentDataContainer(craftTagContainer.getRaw(), craftTagContainer.getDataTagTypeRegistry());
+        return new CraftPersistentDataContainer(craftTagContainer); // CatServer - copy on write
     }
 
     @Override
@@ -11,8 +11,11 @@ import org.bukkit.map.MapPalette;
 public class CraftMapCanvas implements MapCanvas {
 
     private final byte[] buffer = new byte[128 * 128];
+    private final long[] rowModCount = new long[128];
+    private long modCount;
     private final CraftMapView mapView;
-    private byte[] base;
+    private CraftMapCanvas[] below;
+    private int belowCount;
     private MapCursorCollection cursors = new MapCursorCollection();
 
     protected CraftMapCanvas(CraftMapView mapView) {
@@ -41,6 +44,7 @@ public class CraftMapCanvas implements MapCanvas {
             return;
         if (buffer[y * 128 + x] != color) {
             buffer[y * 128 + x] = color;
+            rowModCount[y] = ++modCount;
             mapView.worldMap.setColorsDirty(x, y);
         }
     }
@@ -56,11 +60,28 @@ public class CraftMapCanvas implements MapCanvas {
     public byte getBasePixel(int x, int y) {
         if (x < 0 || y < 0 || x >= 128 || y >= 128)
             return 0;
-        return base[y * 128 + x];
+        // The layers below composited, the topmost valid color wins
+        final int index = y * 128 + x;
+        for (int i = belowCount - 1; i >= 0; i--) {
+            final byte color = below[i].buffer[index];
+            if (color >= 0 || color <= -9) {
+                return color;
+            }
+        }
+        return 0;
+    }
+
+    protected void setBase(CraftMapCanvas[] below, int count) {
+        this.below = below;
+        this.belowCount = count;
+    }
+
+    protected long getModCount() {
+        return modCount;
     }
 
-    protected void setBase(byte[] base) {
-        this.base = base;
+    protected long getRowModCount(int y) {
+        return rowModCount[y];
     }
 
     protected byte[] getBuffer() {
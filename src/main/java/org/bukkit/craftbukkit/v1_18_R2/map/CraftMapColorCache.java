@@ -0,0 +1,136 @@
+package org.bukkit.craftbukkit.v1_18_R2.map;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.Nullable;
+import org.bukkit.map.MapPalette;
+
+/**
+ * Closest palette color of every RGB color, 16MB indexed by the RGB value.
+ * <p>
+ * Built in the background the first time a color is matched, until then
+ * {@link MapPalette} keeps searching the palette. With a cache file the colors
+ * are saved compressed and loaded on the next start instead; a file that
+ * doesn't agree with the palette on a sample of colors is rebuilt.
+ */
+public final class CraftMapColorCache implements MapPalette.MapColorCache {
+
+    private static final int MAGIC = 0x4D434331; // MCC1
+    private static final int SIZE = 1 << 24;
+    private static final int SAMPLE_STEP = 17;
+
+    private final Logger logger;
+    private final File file;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile byte[] cache;
+
+    public CraftMapColorCache(Logger logger, @Nullable File file) {
+        this.logger = logger;
+        this.file = file;
+    }
+
+    @Override
+    public boolean isCached() {
+        if (cache != null) {
+            return true;
+        }
+        if (started.compareAndSet(false, true)) {
+            Thread thread = new Thread(this::init, "Map Color Cache");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return false;
+    }
+
+    @Override
+    public byte matchColor(Color color) {
+        final byte[] cache = this.cache;
+        if (cache == null) {
+            throw new IllegalStateException("Map colors are not cached yet");
+        }
+        return cache[color.getRGB() & 0xFFFFFF];
+    }
+
+    private void init() {
+        try {
+            final long start = System.nanoTime();
+            byte[] cache = file != null && file.isFile() ? load() : null;
+            if (cache == null) {
+                cache = new byte[SIZE];
+                final byte[] colors = cache;
+                // Not cached yet, so this searches the palette
+                IntStream.range(0, 256).parallel().forEach(r -> {
+                    for (int g = 0; g < 256; g++) {
+                        for (int b = 0; b < 256; b++) {
+                            colors[r << 16 | g << 8 | b] = MapPalette.matchColor(new Color(r, g, b));
+                        }
+                    }
+                });
+                logger.info("Built the map color cache in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+                if (file != null) {
+                    save(cache);
+                }
+            }
+            this.cache = cache;
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Could not build the map color cache, matching colors without it", t);
+        }
+    }
+
+    @Nullable
+    private byte[] load() {
+        final byte[] cache = new byte[SIZE];
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != SIZE) {
+                return null;
+            }
+            in.readFully(cache);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not read the map color cache from " + file + ", rebuilding it", ex);
+            return null;
+        }
+
+        for (int r = 0; r < 256; r += SAMPLE_STEP) {
+            for (int g = 0; g < 256; g += SAMPLE_STEP) {
+                for (int b = 0; b < 256; b += SAMPLE_STEP) {
+                    if (cache[r << 16 | g << 8 | b] != MapPalette.matchColor(new Color(r, g, b))) {
+                        logger.info("The map color cache in " + file + " is for another palette, rebuilding it");
+                        return null;
+                    }
+                }
+            }
+        }
+        return cache;
+    }
+
+    private void save(byte[] cache) {
+        final File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(SIZE);
+                out.write(cache);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not save the map color cache to " + file, ex);
+            temp.delete();
+        }
+    }
+}
@@ -139,38 +139,80 @@ public final class CraftMapView implements MapView {
             renderCache.remove(null);
         }
 
-        Arrays.fill(render.buffer, (byte) 0);
         render.cursors.clear();
 
-        for (MapRenderer renderer : renderers) {
+        CraftMapCanvas[] layers = new CraftMapCanvas[renderers.size()];
+        for (int l = 0; l < layers.length; l++) {
+            MapRenderer renderer = renderers.get(l);
             CraftMapCanvas canvas = canvases.get(renderer).get(renderer.isContextual() ? player : null);
             if (canvas == null) {
                 canvas = new CraftMapCanvas(this);
                 canvases.get(renderer).put(renderer.isContextual() ? player : null, canvas);
             }
 
-            canvas.setBase(render.buffer);
+            canvas.setBase(layers, l);
+            layers[l] = canvas;
             try {
                 renderer.render(this, canvas, player);
             } catch (Throwable ex) {
                 Bukkit.getLogger().log(Level.SEVERE, "Could not render map using renderer " + renderer.getClass().getName(), ex);
             }
 
-            byte[] buf = canvas.getBuffer();
-            for (int i = 0; i < buf.length; ++i) {
-                byte color = buf[i];
-                // There are 248 valid color id's, 0 -> 127 and -128 -> -9
-                if (color >= 0 || color <= -9) render.buffer[i] = color;
-            }
-
             for (int i = 0; i < canvas.getCursors().size(); ++i) {
                 render.cursors.add(canvas.getCursors().getCursor(i));
             }
         }
 
+        composite(render, layers);
         return render;
     }
 
+    /**
+     * Composites the canvases into the render buffer, only redoing the rows
+     * that changed since the last time.
+     */
+    private void composite(RenderData render, CraftMapCanvas[] layers) {
+        int minY = 128;
+        int maxY = -1;
+        if (!Arrays.equals(render.layers, layers)) {
+            minY = 0;
+            maxY = 127;
+            render.layers = layers;
+            render.layerModCounts = new long[layers.length];
+        } else {
+            for (int l = 0; l < layers.length; l++) {
+                long seen = render.layerModCounts[l];
+                if (layers[l].getModCount() == seen) {
+                    continue;
+                }
+                for (int y = 0; y < 128; y++) {
+                    if (layers[l].getRowModCount(y) > seen) {
+                        minY = Math.min(minY, y);
+                        maxY = Math.max(maxY, y);
+                    }
+                }
+            }
+        }
+        for (int l = 0; l < layers.length; l++) {
+            render.layerModCounts[l] = layers[l].getModCount();
+        }
+        if (maxY < minY) {
+            return;
+        }
+
+        int from = minY * 128;
+        int to = (maxY + 1) * 128;
+        Arrays.fill(render.buffer, from, to, (byte) 0);
+        for (CraftMapCanvas canvas : layers) {
+            byte[] buf = canvas.getBuffer();
+            for (int i = from; i < to; ++i) {
+                byte color = buf[i];
+                // There are 248 valid color id's, 0 -> 127 and -128 -> -9
+                if (color >= 0 || color <= -9) render.buffer[i] = color;
+            }
+        }
+    }
+
     @Override
     public boolean isTrackingPosition() {
         return worldMap.trackingPosition;
@@ -7,6 +7,9 @@ public class RenderData {
 
     public byte[] buffer;
     public final ArrayList<MapCursor> cursors;
+    // Canvases composited into the buffer and their mod count at the time
+    CraftMapCanvas[] layers = new CraftMapCanvas[0];
+    long[] layerModCounts = new long[0];
 
     public RenderData() {
         this.buffer = new byte[128 * 128];
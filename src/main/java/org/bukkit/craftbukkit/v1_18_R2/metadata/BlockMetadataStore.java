@@ -1,6 +1,7 @@
 package org.bukkit.craftbukkit.v1_18_R2.metadata;
 
 import java.util.List;
+import net.minecraft.core.BlockPos;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.metadata.MetadataStore;
@@ -35,6 +36,11 @@ public class BlockMetadataStore extends MetadataStoreBase<Block> implements Meta
         return Integer.toString(block.getX()) + ":" + Integer.toString(block.getY()) + ":" + Integer.toString(block.getZ()) + ":" + metadataKey;
     }
 
+    @Override
+    protected Object getSubjectKey(Block block) {
+        return BlockPos.asLong(block.getX(), block.getY(), block.getZ()); // CatServer
+    }
+
     /**
      * Retrieves the metadata for a {@link Block}, ensuring the block being asked for actually belongs to this BlockMetadataStore's
      * owning world.
@@ -1,5 +1,6 @@
 package org.bukkit.craftbukkit.v1_18_R2.metadata;
 
+import java.util.UUID;
 import org.bukkit.entity.Entity;
 import org.bukkit.metadata.MetadataStore;
 import org.bukkit.metadata.MetadataStoreBase;
@@ -20,4 +21,21 @@ public class EntityMetadataStore extends MetadataStoreBase<Entity> implements Me
     protected String disambiguate(Entity entity, String metadataKey) {
         return entity.getUniqueId().toString() + ":" + metadataKey;
     }
+
+    // CatServer start
+    @Override
+    protected Object getSubjectKey(Entity entity) {
+        return entity.getUniqueId();
+    }
+
+    /**
+     * Removes all metadata of the entity with the given UUID, used when it
+     * is removed from its world or unloaded.
+     *
+     * @param uniqueId the entity UUID
+     */
+    public void removeAll(UUID uniqueId) {
+        removeSubject(uniqueId);
+    }
+    // CatServer end
 }
@@ -20,4 +20,9 @@ public class PlayerMetadataStore extends MetadataStoreBase<OfflinePlayer> implem
     protected String disambiguate(OfflinePlayer player, String metadataKey) {
         return player.getUniqueId() + ":" + metadataKey;
     }
+
+    @Override
+    protected Object getSubjectKey(OfflinePlayer player) {
+        return player.getUniqueId(); // CatServer
+    }
 }
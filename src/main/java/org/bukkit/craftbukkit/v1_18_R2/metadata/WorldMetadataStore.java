@@ -19,4 +19,9 @@ public class WorldMetadataStore extends MetadataStoreBase<World> implements Meta
     protected String disambiguate(World world, String metadataKey) {
         return world.getUID().toString() + ":" + metadataKey;
     }
+
+    @Override
+    protected Object getSubjectKey(World world) {
+        return world.getUID(); // CatServer
+    }
 }
@@ -4,9 +4,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
 import java.util.Set;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NumericTag;
+import net.minecraft.nbt.StringTag;
 import net.minecraft.nbt.Tag;
 import org.apache.commons.lang3.Validate;
 import org.bukkit.NamespacedKey;
@@ -15,15 +16,28 @@ import org.bukkit.persistence.PersistentDataAdapterContext;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
 
+/**
+ * Persistent data backed by NBT tags.
+ * <p>
+ * Containers loaded from a {@link CompoundTag} read through to it until they
+ * are first changed, and copies made with
+ * {@link #CraftPersistentDataContainer(CraftPersistentDataContainer)} share
+ * their tags with the original until either side is changed. Reading, saving
+ * and comparing containers therefore never copies the tags.
+ */
 public class CraftPersistentDataContainer implements PersistentDataContainer {
 
-    private final Map<String, Tag> customDataTags = new HashMap<>();
+    // Null while the container reads through to source
+    private Map<String, Tag> customDataTags;
+    private CompoundTag source;
+    // Whether customDataTags is also used by another container
+    private boolean shared;
     private final CraftPersistentDataTypeRegistry registry;
     private final CraftPersistentDataAdapterContext adapterContext;
 
     public CraftPersistentDataContainer(Map<String, Tag> customTags, CraftPersistentDataTypeRegistry registry) {
         this(registry);
-        this.customDataTags.putAll(customTags);
+        this.customDataTags = new HashMap<>(customTags);
     }
 
     public CraftPersistentDataContainer(CraftPersistentDataTypeRegistry registry) {
@@ -31,6 +45,73 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
         this.adapterContext = new CraftPersistentDataAdapterContext(this.registry);
     }
 
+    /**
+     * Creates a container reading through to the given compound until it is
+     * changed, the compound must not be changed by the caller afterwards.
+     *
+     * @param compound the tags of the container
+     * @param registry the type registry
+     */
+    public CraftPersistentDataContainer(CompoundTag compound, CraftPersistentDataTypeRegistry registry) {
+        this(registry);
+        this.source = compound;
+    }
+
+    /**
+     * Creates a copy of the given container, the tags are only copied once
+     * either container is changed.
+     *
+     * @param container the container to copy
+     */
+    public CraftPersistentDataContainer(CraftPersistentDataContainer container) {
+        this(container.registry);
+        this.source = container.source;
+        if (container.customDataTags != null) {
+            this.customDataTags = container.customDataTags;
+            this.shared = container.shared = true;
+        }
+    }
+
+    private Tag read(String key) {
+        if (this.customDataTags != null) {
+            return this.customDataTags.get(key);
+        }
+        return this.source != null ? this.source.get(key) : null;
+    }
+
+    private Set<String> keys() {
+        if (this.customDataTags != null) {
+            return this.customDataTags.keySet();
+        }
+        return this.source != null ? this.source.getAllKeys() : Set.of();
+    }
+
+    private int size() {
+        if (this.customDataTags != null) {
+            return this.customDataTags.size();
+        }
+        return this.source != null ? this.source.size() : 0;
+    }
+
+    /**
+     * Gets the tags for changing them, copying them first if they are
+     * borrowed from a compound or another container.
+     */
+    private Map<String, Tag> writable() {
+        if (this.customDataTags == null) {
+            this.customDataTags = new HashMap<>();
+            if (this.source != null) {
+                for (String key : this.source.getAllKeys()) {
+                    this.customDataTags.put(key, this.source.get(key).copy());
+                }
+                this.source = null;
+            }
+        } else if (this.shared) {
+            this.customDataTags = new HashMap<>(this.customDataTags);
+            this.shared = false;
+        }
+        return this.customDataTags;
+    }
 
     @Override
     public <T, Z> void set(NamespacedKey key, PersistentDataType<T, Z> type, Z value) {
@@ -38,7 +119,7 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
         Validate.notNull(type, "The provided type for the custom value was null");
         Validate.notNull(value, "The provided value for the custom value was null");
 
-        this.customDataTags.put(key.toString(), registry.wrap(type.getPrimitiveType(), type.toPrimitive(value, adapterContext)));
+        this.writable().put(key.toString(), registry.wrap(type.getPrimitiveType(), type.toPrimitive(value, adapterContext)));
     }
 
     @Override
@@ -46,7 +127,7 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
         Validate.notNull(key, "The provided key for the custom value was null");
         Validate.notNull(type, "The provided type for the custom value was null");
 
-        Tag value = this.customDataTags.get(key.toString());
+        Tag value = this.read(key.toString());
         if (value == null) {
             return false;
         }
@@ -59,7 +140,7 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
         Validate.notNull(key, "The provided key for the custom value was null");
         Validate.notNull(type, "The provided type for the custom value was null");
 
-        Tag value = this.customDataTags.get(key.toString());
+        Tag value = this.read(key.toString());
         if (value == null) {
             return null;
         }
@@ -77,7 +158,7 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
     public Set<NamespacedKey> getKeys() {
         Set<NamespacedKey> keys = new HashSet<>();
 
-        this.customDataTags.keySet().forEach(key -> {
+        this.keys().forEach(key -> {
             String[] keyData = key.split(":", 2);
             if (keyData.length == 2) {
                 keys.add(new NamespacedKey(keyData[0], keyData[1]));
@@ -91,12 +172,14 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
     public void remove(NamespacedKey key) {
         Validate.notNull(key, "The provided key for the custom value was null");
 
-        this.customDataTags.remove(key.toString());
+        if (this.read(key.toString()) != null) {
+            this.writable().remove(key.toString());
+        }
     }
 
     @Override
     public boolean isEmpty() {
-        return this.customDataTags.isEmpty();
+        return this.size() == 0;
     }
 
     @Override
@@ -106,40 +189,84 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
 
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
         if (!(obj instanceof CraftPersistentDataContainer)) {
             return false;
         }
 
-        Map<String, Tag> myRawMap = getRaw();
-        Map<String, Tag> theirRawMap = ((CraftPersistentDataContainer) obj).getRaw();
-
-        return Objects.equals(myRawMap, theirRawMap);
+        CraftPersistentDataContainer other = (CraftPersistentDataContainer) obj;
+        if (this.customDataTags != null ? this.customDataTags == other.customDataTags : this.source == other.source && other.customDataTags == null) {
+            return true;
+        }
+        if (this.size() != other.size()) {
+            return false;
+        }
+        for (String key : this.keys()) {
+            if (!this.read(key).equals(other.read(key))) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Creates a compound of the tags, e.g. to store them in an item. Tags
+     * that can be changed in place are copied, so the compound shares none of
+     * them with this container or with other compounds made from it.
+     *
+     * @return a new compound
+     */
     public CompoundTag toTagCompound() {
         CompoundTag tag = new CompoundTag();
-        for (Entry<String, Tag> entry : this.customDataTags.entrySet()) {
-            tag.put(entry.getKey(), entry.getValue());
+        if (this.customDataTags != null) {
+            for (Entry<String, Tag> entry : this.customDataTags.entrySet()) {
+                tag.put(entry.getKey(), copyIfMutable(entry.getValue()));
+            }
+        } else if (this.source != null) {
+            for (String key : this.source.getAllKeys()) {
+                tag.put(key, copyIfMutable(this.source.get(key)));
+            }
         }
         return tag;
     }
 
+    private static Tag copyIfMutable(Tag tag) {
+        // Numbers and strings are immutable, compounds, lists and arrays are not
+        return tag instanceof NumericTag || tag instanceof StringTag ? tag : tag.copy();
+    }
+
     public void put(String key, Tag base) {
-        this.customDataTags.put(key, base);
+        this.writable().put(key, base);
     }
 
     public void putAll(Map<String, Tag> map) {
-        this.customDataTags.putAll(map);
+        this.writable().putAll(map);
     }
 
     public void putAll(CompoundTag compound) {
+        if (this.isEmpty()) {
+            // Loading, read through until changed
+            this.customDataTags = null;
+            this.source = compound;
+            this.shared = false;
+            return;
+        }
+        Map<String, Tag> tags = this.writable();
         for (String key : compound.getAllKeys()) {
-            this.customDataTags.put(key, compound.get(key));
+            tags.put(key, compound.get(key));
         }
     }
 
+    /**
+     * Gets the tags of this container, the map may be changed by the caller.
+     * Copies borrowed tags, prefer the other accessors for reading.
+     *
+     * @return the tags by key
+     */
     public Map<String, Tag> getRaw() {
-        return this.customDataTags;
+        return this.writable();
     }
 
     public CraftPersistentDataTypeRegistry getDataTagTypeRegistry() {
@@ -149,7 +276,12 @@ public class CraftPersistentDataContainer implements PersistentDataContainer {
     @Override
     public int hashCode() {
         int hashCode = 3;
-        hashCode += this.customDataTags.hashCode(); // We will simply add the maps hashcode
+        // CompoundTag hashes its map as well, so both forms hash alike
+        if (this.customDataTags != null) {
+            hashCode += this.customDataTags.hashCode(); // We will simply add the maps hashcode
+        } else if (this.source != null) {
+            hashCode += this.source.hashCode();
+        }
         return hashCode;
     }
 
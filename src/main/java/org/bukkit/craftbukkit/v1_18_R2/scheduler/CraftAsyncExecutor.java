@@ -0,0 +1,303 @@
+package org.bukkit.craftbukkit.v1_18_R2.scheduler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+
+/**
+ * Runs the async tasks of {@link CraftScheduler} and keeps per-plugin
+ * statistics about them.
+ * <p>
+ * Three modes are supported:
+ * <li>{@code bounded}: a pool of at most {@code maxThreads} threads. Queued tasks are
+ *     taken round-robin across plugins, so a plugin flooding the scheduler delays its
+ *     own tasks rather than everyone else's. Threads above {@code coreThreads} exit
+ *     after being idle for a minute, the core threads after five minutes, so idle
+ *     workers never keep the JVM alive.</li>
+ * <li>{@code virtual}: one virtual thread per task, on runtimes that support them.
+ *     Falls back to {@code bounded} otherwise.</li>
+ * <li>{@code cached}: one platform thread per concurrently running task, as in CraftBukkit. The default.</li>
+ * <p>
+ * {@link #shutdown()} lets the queued tasks finish and then stops the workers.
+ */
+public final class CraftAsyncExecutor {
+
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long CORE_KEEP_ALIVE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final Map<String, PluginStatistics> statistics = new ConcurrentHashMap<String, PluginStatistics>();
+    private final String mode;
+    private final int coreThreads;
+    private final int maxThreads;
+    private final Executor executor;
+
+    // Bounded mode only, guarded by lock
+    private final Object lock = new Object();
+    private final ArrayDeque<PluginStatistics> ready = new ArrayDeque<PluginStatistics>();
+    private final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("Craft Scheduler Thread - %d").build();
+    private int threads;
+    private int idle;
+    private int queued;
+    private boolean shutdown;
+
+    CraftAsyncExecutor(String mode, int coreThreads, int maxThreads) {
+        mode = mode.toLowerCase(Locale.ROOT);
+        this.coreThreads = Math.max(1, coreThreads);
+        this.maxThreads = Math.max(this.coreThreads, maxThreads);
+
+        Executor executor = null;
+        if ("virtual".equals(mode)) {
+            executor = newVirtualThreadExecutor();
+            if (executor == null) {
+                Bukkit.getLogger().warning("Virtual threads are not available on this Java runtime, using a bounded pool for async tasks");
+                mode = "bounded";
+            }
+        } else if ("cached".equals(mode)) {
+            executor = Executors.newCachedThreadPool(threadFactory);
+        } else if (!"bounded".equals(mode)) {
+            Bukkit.getLogger().warning("Unknown async scheduler mode " + mode + ", using a bounded pool for async tasks");
+            mode = "bounded";
+        }
+        this.mode = mode;
+        this.executor = executor;
+    }
+
+    void execute(final CraftAsyncTask task) {
+        final String owner = task.getOwner().getName();
+        PluginStatistics stats = statistics.get(owner);
+        if (stats == null) {
+            stats = statistics.computeIfAbsent(owner, PluginStatistics::new);
+        }
+        final Job job = new Job(task, stats);
+        stats.queued.incrementAndGet();
+
+        if (executor != null) {
+            try {
+                executor.execute(job);
+            } catch (RejectedExecutionException e) {
+                // Scheduled while shutting down, still run it
+                threadFactory.newThread(job).start();
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            stats.jobs.add(job);
+            if (!stats.ready) {
+                stats.ready = true;
+                ready.add(stats);
+            }
+            queued++;
+            if (queued > idle && threads < maxThreads) {
+                threads++;
+                threadFactory.newThread(this::work).start();
+            } else {
+                lock.notify();
+            }
+        }
+    }
+
+    private void work() {
+        Job job;
+        while ((job = take()) != null) {
+            try {
+                job.run();
+            } catch (Throwable t) {
+                Bukkit.getLogger().log(Level.SEVERE, "Error running async task " + job.task.getTaskId() + " for " + job.stats.plugin, t);
+            }
+        }
+    }
+
+    private Job take() {
+        synchronized (lock) {
+            final long start = System.nanoTime();
+            while (ready.isEmpty()) {
+                final long remaining = (threads > coreThreads ? KEEP_ALIVE_NANOS : CORE_KEEP_ALIVE_NANOS) - (System.nanoTime() - start);
+                if (shutdown || remaining <= 0L) {
+                    threads--;
+                    return null;
+                }
+                try {
+                    idle++;
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException ignored) {
+                    // Workers are never interrupted on purpose, keep serving tasks
+                } finally {
+                    idle--;
+                }
+            }
+
+            // Take one task from the plugin at the front and move it to the back
+            PluginStatistics stats = ready.poll();
+            Job job = stats.jobs.poll();
+            if (stats.jobs.isEmpty()) {
+                stats.ready = false;
+            } else {
+                ready.add(stats);
+            }
+            queued--;
+            return job;
+        }
+    }
+
+    /**
+     * Stops the workers once the queued tasks are done. Tasks scheduled
+     * afterwards still run, each on a thread that exits when it is done.
+     */
+    void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+            return;
+        }
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+    }
+
+    private static Executor newVirtualThreadExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 17, or Java 19/20 without --enable-preview
+            return null;
+        }
+    }
+
+    /**
+     * Gets the mode in use, which may differ from the configured one if it
+     * was not available.
+     *
+     * @return bounded, virtual or cached
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the number of platform threads of the bounded pool.
+     *
+     * @return the thread count, or -1 if not in bounded mode
+     */
+    public int getThreadCount() {
+        if (executor != null) {
+            return -1;
+        }
+        synchronized (lock) {
+            return threads;
+        }
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Gets the statistics of every plugin that has run async tasks.
+     *
+     * @return a snapshot of the statistics list
+     */
+    public List<PluginStatistics> getStatistics() {
+        return new ArrayList<PluginStatistics>(statistics.values());
+    }
+
+    public static final class PluginStatistics {
+        private final String plugin;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        // Bounded mode only, guarded by the executor lock
+        private final ArrayDeque<Job> jobs = new ArrayDeque<Job>();
+        private boolean ready;
+
+        private PluginStatistics(String plugin) {
+            this.plugin = plugin;
+        }
+
+        public String getPlugin() {
+            return plugin;
+        }
+
+        /**
+         * Gets the number of tasks waiting for a thread.
+         */
+        public int getQueued() {
+            return queued.get();
+        }
+
+        /**
+         * Gets the number of tasks currently running.
+         */
+        public int getActive() {
+            return active.get();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        /**
+         * Gets the average time tasks waited for a thread.
+         */
+        public long getAverageWaitNanos() {
+            long count = completed.sum();
+            return count == 0 ? 0 : waitNanos.sum() / count;
+        }
+
+        public long getMaxWaitNanos() {
+            return maxWaitNanos.get();
+        }
+
+        public long getAverageRunNanos() {
+            long count = completed.sum();
+            return count == 0 ? 0 : runNanos.sum() / count;
+        }
+    }
+
+    private static final class Job implements Runnable {
+        private final CraftAsyncTask task;
+        private final PluginStatistics stats;
+        private final long queuedAt = System.nanoTime();
+
+        private Job(CraftAsyncTask task, PluginStatistics stats) {
+            this.task = task;
+            this.stats = stats;
+        }
+
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            final long wait = start - queuedAt;
+            stats.queued.decrementAndGet();
+            stats.active.incrementAndGet();
+            stats.maxWaitNanos.accumulateAndGet(wait, Math::max);
+            try {
+                task.run();
+            } finally {
+                stats.active.decrementAndGet();
+                stats.waitNanos.add(wait);
+                stats.runNanos.add(System.nanoTime() - start);
+                stats.completed.increment();
+            }
+        }
+    }
+}
@@ -1,15 +1,10 @@
 package org.bukkit.craftbukkit.v1_18_R2.scheduler;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -23,6 +18,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 import org.bukkit.scheduler.BukkitScheduler;
 import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.scheduler.BukkitWorker;
+import org.spigotmc.SpigotConfig;
 
 /**
  * The fundamental concepts for this implementation:
@@ -74,16 +70,7 @@ public class CraftScheduler implements BukkitScheduler {
     /**
      * Main thread logic only
      */
-    private final PriorityQueue<CraftTask> pending = new PriorityQueue<CraftTask>(10,
-            new Comparator<CraftTask>() {
-                @Override
-                public int compare(final CraftTask o1, final CraftTask o2) {
-                    int value = Long.compare(o1.getNextRun(), o2.getNextRun());
-
-                    // If the tasks should run on the same tick they should be run FIFO
-                    return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
-                }
-            });
+    private final CraftTaskQueue pending = new CraftTaskQueue(-1);
     /**
      * Main thread logic only
      */
@@ -92,12 +79,19 @@ public class CraftScheduler implements BukkitScheduler {
      * These are tasks that are currently active. It's provided for 'viewing' the current state.
      */
     private final ConcurrentHashMap<Integer, CraftTask> runners = new ConcurrentHashMap<Integer, CraftTask>();
+    /**
+     * Per-plugin sync task budgets by plugin name. Only the main thread adds to it
+     */
+    private final ConcurrentHashMap<String, CraftTaskBudget> budgets = new ConcurrentHashMap<String, CraftTaskBudget>();
     /**
      * The sync task that is currently running on the main thread.
      */
     private volatile CraftTask currentTask = null;
     private volatile int currentTick = -1;
-    private final Executor executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("Craft Scheduler Thread - %d").build());
+    /**
+     * Created on first use, as the scheduler is constructed before spigot.yml is loaded
+     */
+    private volatile CraftAsyncExecutor asyncExecutor;
     private CraftAsyncDebugger debugHead = new CraftAsyncDebugger(-1, null, null) {
         @Override
         StringBuilder debugTo(StringBuilder string) {
@@ -399,6 +393,7 @@ public class CraftScheduler implements BukkitScheduler {
     public void mainThreadHeartbeat(final int currentTick) {
         this.currentTick = currentTick;
         final List<CraftTask> temp = this.temp;
+        pending.advance(currentTick);
         parsePending();
         while (isReady(currentTick)) {
             final CraftTask task = pending.remove();
@@ -410,6 +405,16 @@ public class CraftScheduler implements BukkitScheduler {
                 continue;
             }
             if (task.isSync()) {
+                final CraftTaskBudget budget = SpigotConfig.pluginTaskBudget ? getBudget(task.getOwner()) : null;
+                if (budget != null && budget.isExhausted(currentTick)) {
+                    // Over budget, run it next tick without touching its period, behind the tasks that did run
+                    budget.defer(currentTick);
+                    task.setNextRun(currentTick + 1);
+                    task.moveToBack();
+                    temp.add(task);
+                    continue;
+                }
+                final long start = budget != null ? System.nanoTime() : 0L;
                 currentTask = task;
                 try {
                     task.timings.startTiming(); // Spigot
@@ -425,11 +430,14 @@ public class CraftScheduler implements BukkitScheduler {
                             throwable);
                 } finally {
                     currentTask = null;
+                    if (budget != null) {
+                        budget.use(System.nanoTime() - start);
+                    }
                 }
                 parsePending();
             } else {
                 debugTail = debugTail.setNext(new CraftAsyncDebugger(currentTick + RECENT_TICKS, task.getOwner(), task.getTaskClass()));
-                executor.execute(task);
+                getAsyncExecutor().execute((CraftAsyncTask) task);
                 // We don't need to parse pending
                 // (async tasks must live with race-conditions if they attempt to cancel between these few lines of code)
             }
@@ -446,6 +454,52 @@ public class CraftScheduler implements BukkitScheduler {
         debugHead = debugHead.getNextHead(currentTick);
     }
 
+    /**
+     * Gets the executor running async tasks, which also tracks per-plugin
+     * queue depth, active count and latency.
+     */
+    public CraftAsyncExecutor getAsyncExecutor() {
+        CraftAsyncExecutor executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    asyncExecutor = executor = new CraftAsyncExecutor(SpigotConfig.asyncSchedulerMode, SpigotConfig.asyncSchedulerCoreThreads, SpigotConfig.asyncSchedulerMaxThreads);
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the async workers once their queued tasks are done, called when
+     * the server disables its plugins on shutdown.
+     */
+    public void shutdownAsyncExecutor() {
+        final CraftAsyncExecutor executor = asyncExecutor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private CraftTaskBudget getBudget(final Plugin plugin) {
+        final String name = plugin.getName();
+        CraftTaskBudget budget = budgets.get(name);
+        if (budget == null) {
+            budget = new CraftTaskBudget(name);
+            budgets.put(name, budget);
+        }
+        return budget;
+    }
+
+    /**
+     * Gets the sync task budgets of the plugins that have run sync tasks
+     * while budgeting was enabled, including how often each was deferred.
+     */
+    public List<CraftTaskBudget> getTaskBudgets() {
+        return new ArrayList<CraftTaskBudget>(budgets.values());
+    }
+
     private void addTask(final CraftTask task) {
         final AtomicReference<CraftTask> tail = this.tail;
         CraftTask tailTask = tail.get();
@@ -501,7 +555,7 @@ public class CraftScheduler implements BukkitScheduler {
     }
 
     private boolean isReady(final int currentTick) {
-        return !pending.isEmpty() && pending.peek().getNextRun() <= currentTick;
+        return pending.isReady(currentTick);
     }
 
     @Override
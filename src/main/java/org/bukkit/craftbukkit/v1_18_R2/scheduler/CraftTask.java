@@ -29,7 +29,7 @@ public class CraftTask implements BukkitTask, Runnable {
     private final Consumer<BukkitTask> cTask;
     private final Plugin plugin;
     private final int id;
-    private final long createdAt = System.nanoTime();
+    private long createdAt = System.nanoTime();
     final CustomTimingsHandler timings; // Spigot
 
     CraftTask() {
@@ -88,6 +88,14 @@ public class CraftTask implements BukkitTask, Runnable {
         return createdAt;
     }
 
+    /**
+     * Moves the task behind the tasks due on the same tick, for tasks deferred
+     * by a plugin task budget so the same ones aren't always run first.
+     */
+    void moveToBack() {
+        createdAt = System.nanoTime();
+    }
+
     long getPeriod() {
         return period;
     }
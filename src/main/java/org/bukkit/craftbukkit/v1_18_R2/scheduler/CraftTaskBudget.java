@@ -0,0 +1,82 @@
+package org.bukkit.craftbukkit.v1_18_R2.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import org.spigotmc.SpigotConfig;
+
+/**
+ * Main thread time a plugin's sync tasks may use per tick, when
+ * settings.plugin-task-budget is enabled.
+ * <p>
+ * A plugin's first task of a tick always runs, so a single task longer than
+ * the budget still makes progress. Tasks due once the budget is spent are
+ * deferred to the next tick. Updated on the main thread only.
+ */
+public final class CraftTaskBudget {
+
+    private static final int REPORT_INTERVAL = 20 * 60;
+
+    private final String plugin;
+    private volatile long budgetNanos;
+    private int tick = Integer.MIN_VALUE;
+    private long usedNanos;
+    private volatile long lastTickNanos;
+    private volatile long deferrals;
+    private long reportDeferrals;
+    private int reportTick = -REPORT_INTERVAL;
+
+    CraftTaskBudget(String plugin) {
+        this.plugin = plugin;
+    }
+
+    boolean isExhausted(int currentTick) {
+        if (tick != currentTick) {
+            // Looked up again every tick so /reload picks up config changes
+            budgetNanos = (long) (SpigotConfig.pluginTaskBudgets.getOrDefault(plugin, SpigotConfig.pluginTaskBudgetDefault) * TimeUnit.MILLISECONDS.toNanos(1));
+            lastTickNanos = usedNanos;
+            usedNanos = 0L;
+            tick = currentTick;
+            return false;
+        }
+        return usedNanos >= budgetNanos;
+    }
+
+    void use(long nanos) {
+        usedNanos += nanos;
+    }
+
+    void defer(int currentTick) {
+        deferrals++;
+        reportDeferrals++;
+        if (currentTick - reportTick >= REPORT_INTERVAL) {
+            Bukkit.getLogger().log(Level.WARNING, String.format(
+                    "Plugin %s exceeded its sync task budget of %.1f ms per tick, deferred %d tasks to later ticks since the last report",
+                    plugin, budgetNanos / 1e6, reportDeferrals));
+            reportDeferrals = 0L;
+            reportTick = currentTick;
+        }
+    }
+
+    public String getPlugin() {
+        return plugin;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Gets the time the plugin's sync tasks used in the last full tick they ran.
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Gets the number of task runs deferred because the budget was spent.
+     */
+    public long getDeferrals() {
+        return deferrals;
+    }
+}
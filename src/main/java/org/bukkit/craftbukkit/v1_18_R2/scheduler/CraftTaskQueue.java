@@ -0,0 +1,275 @@
+package org.bukkit.craftbukkit.v1_18_R2.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Hierarchical timing wheel holding the pending tasks of {@link CraftScheduler}.
+ * <p>
+ * Tasks are bucketed by {@link CraftTask#getNextRun()}: level 0 has one slot per
+ * tick for the next 256 ticks, each further level has 64 slots covering 64 slots
+ * of the level below, and tasks beyond the last level wait in an overflow list.
+ * Adding a task and advancing by a tick are O(1); tasks only move when their
+ * slot of a higher level comes up.
+ * <p>
+ * Due tasks are moved to a ready list ordered by next run then creation time,
+ * the same order the scheduler's priority queue used, so tasks due on the
+ * same tick still run FIFO. Main thread only, like the queue it replaces.
+ */
+class CraftTaskQueue implements Iterable<CraftTask> {
+
+    private static final Comparator<CraftTask> ORDER = new Comparator<CraftTask>() {
+        @Override
+        public int compare(final CraftTask o1, final CraftTask o2) {
+            int value = Long.compare(o1.getNextRun(), o2.getNextRun());
+
+            // If the tasks should run on the same tick they should be run FIFO
+            return value != 0 ? value : Long.compare(o1.getCreatedAt(), o2.getCreatedAt());
+        }
+    };
+
+    private static final int LEVEL_0_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVELS = 4;
+    private static final int[] SHIFTS = new int[LEVELS];
+    private static final long[] SPANS = new long[LEVELS];
+
+    static {
+        int shift = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            SHIFTS[level] = shift;
+            shift += level == 0 ? LEVEL_0_BITS : LEVEL_BITS;
+            SPANS[level] = 1L << shift;
+        }
+    }
+
+    private final List<CraftTask>[][] wheels;
+    private final List<CraftTask> overflow = new ArrayList<CraftTask>();
+    /**
+     * Due tasks in run order, consumed from {@link #readyHead}
+     */
+    private final ArrayList<CraftTask> ready = new ArrayList<CraftTask>();
+    private int readyHead;
+    private long tick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    CraftTaskQueue(final long tick) {
+        this.tick = tick;
+        this.wheels = new List[LEVELS][];
+        for (int level = 0; level < LEVELS; level++) {
+            wheels[level] = new List[1 << (level == 0 ? LEVEL_0_BITS : LEVEL_BITS)];
+            for (int slot = 0; slot < wheels[level].length; slot++) {
+                wheels[level][slot] = new ArrayList<CraftTask>(level == 0 ? 4 : 0);
+            }
+        }
+    }
+
+    void add(final CraftTask task) {
+        size++;
+        place(task);
+    }
+
+    void addAll(final Collection<CraftTask> tasks) {
+        for (CraftTask task : tasks) {
+            add(task);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Moves the wheel forward to the given tick, making every task due by
+     * then ready.
+     */
+    void advance(final long currentTick) {
+        if (currentTick - tick > SPANS[0]) {
+            // Far jump, cheaper to re-bucket everything than to walk every tick
+            final List<CraftTask> all = new ArrayList<CraftTask>(size);
+            for (CraftTask task : this) {
+                all.add(task);
+            }
+            clearBuckets();
+            tick = currentTick;
+            for (CraftTask task : all) {
+                place(task);
+            }
+        }
+
+        final int readyStart = ready.size();
+        while (tick < currentTick) {
+            tick++;
+            // Cascade the higher levels whose slot starts on this tick, top down
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((tick & (SPANS[level - 1] - 1)) == 0) {
+                    cascade(level);
+                    if (level == LEVELS - 1) {
+                        cascadeOverflow();
+                    }
+                }
+            }
+            final List<CraftTask> slot = wheels[0][(int) (tick & (SPANS[0] - 1))];
+            if (!slot.isEmpty()) {
+                ready.addAll(slot);
+                slot.clear();
+            }
+        }
+        if (ready.size() - readyStart > 1) {
+            // Slots are filled in insertion order, not creation order. Already sorted runs are common, which TimSort handles in one pass
+            Collections.sort(ready.subList(Math.max(readyStart, readyHead), ready.size()), ORDER);
+        }
+    }
+
+    boolean isReady(final long currentTick) {
+        return readyHead < ready.size() && ready.get(readyHead).getNextRun() <= currentTick;
+    }
+
+    CraftTask remove() {
+        if (readyHead >= ready.size()) {
+            throw new NoSuchElementException();
+        }
+        final CraftTask task = ready.set(readyHead++, null);
+        if (readyHead == ready.size()) {
+            ready.clear();
+            readyHead = 0;
+        }
+        size--;
+        return task;
+    }
+
+    private void place(final CraftTask task) {
+        final long nextRun = task.getNextRun();
+        final long delay = nextRun - tick;
+        if (delay <= 0) {
+            addReady(task);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delay < SPANS[level]) {
+                final long slots = level == 0 ? SPANS[0] : SPANS[level] / SPANS[level - 1];
+                wheels[level][(int) ((nextRun >> SHIFTS[level]) & (slots - 1))].add(task);
+                return;
+            }
+        }
+        overflow.add(task);
+    }
+
+    private void addReady(final CraftTask task) {
+        // New tasks are almost always the latest, only search when they are not
+        if (readyHead == ready.size() || ORDER.compare(ready.get(ready.size() - 1), task) <= 0) {
+            ready.add(task);
+            return;
+        }
+        int low = readyHead;
+        int high = ready.size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (ORDER.compare(ready.get(mid), task) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        ready.add(low, task);
+    }
+
+    private void cascade(final int level) {
+        final long slots = SPANS[level] / SPANS[level - 1];
+        final List<CraftTask> slot = wheels[level][(int) ((tick >> SHIFTS[level]) & (slots - 1))];
+        if (slot.isEmpty()) {
+            return;
+        }
+        final List<CraftTask> tasks = new ArrayList<CraftTask>(slot);
+        slot.clear();
+        for (CraftTask task : tasks) {
+            place(task);
+        }
+    }
+
+    private void cascadeOverflow() {
+        if (overflow.isEmpty()) {
+            return;
+        }
+        final List<CraftTask> tasks = new ArrayList<CraftTask>(overflow);
+        overflow.clear();
+        for (CraftTask task : tasks) {
+            place(task);
+        }
+    }
+
+    private void clearBuckets() {
+        for (List<CraftTask>[] wheel : wheels) {
+            for (List<CraftTask> slot : wheel) {
+                slot.clear();
+            }
+        }
+        overflow.clear();
+        ready.clear();
+        readyHead = 0;
+    }
+
+    /**
+     * Iterates over every pending task in no particular order. Supports
+     * removal, which is how tasks get cancelled.
+     */
+    @Override
+    public Iterator<CraftTask> iterator() {
+        final List<List<CraftTask>> lists = new ArrayList<List<CraftTask>>();
+        lists.add(ready.subList(readyHead, ready.size()));
+        for (List<CraftTask>[] wheel : wheels) {
+            for (List<CraftTask> slot : wheel) {
+                if (!slot.isEmpty()) {
+                    lists.add(slot);
+                }
+            }
+        }
+        lists.add(overflow);
+
+        return new Iterator<CraftTask>() {
+            private int list = 0;
+            private Iterator<CraftTask> current = lists.get(0).iterator();
+            private Iterator<CraftTask> last;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (++list >= lists.size()) {
+                        return false;
+                    }
+                    current = lists.get(list).iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public CraftTask next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = current;
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                last.remove();
+                last = null;
+                size--;
+            }
+        };
+    }
+}
@@ -197,6 +197,19 @@ public class HandlerList {
         return handlers;
     }
 
+    /**
+     * Checks whether any listener is registered to this handler list.
+     * <p>
+     * This reuses the baked handler array, so it stays valid until the next
+     * (un)registration and is cheap enough to call before building an event.
+     * Callers may use it to skip constructing events nobody listens to.
+     *
+     * @return true if at least one listener is registered
+     */
+    public boolean hasRegisteredListeners() {
+        return getRegisteredListeners().length != 0;
+    }
+
     /**
      * Get a specific plugin's registered listeners associated with this
      * handler list
@@ -33,6 +33,9 @@ public final class MapPalette {
         return weightR * r * r + weightG * g * g + weightB * b * b;
     }
 
+    @Nullable
+    private static MapColorCache mapColorCache;
+
     @NotNull
     static final Color[] colors = {
         c(0, 0, 0), c(0, 0, 0), c(0, 0, 0), c(0, 0, 0),
@@ -238,6 +241,10 @@ public final class MapPalette {
     public static byte matchColor(@NotNull Color color) {
         if (color.getAlpha() < 128) return 0;
 
+        if (mapColorCache != null && mapColorCache.isCached()) {
+            return mapColorCache.matchColor(color);
+        }
+
         int index = 0;
         double best = -1;
 
@@ -253,6 +260,46 @@ public final class MapPalette {
         return (byte) (index < 128 ? index : -129 + (index - 127));
     }
 
+    /**
+     * Sets the given MapColorCache, used by {@link #matchColor(Color)} once
+     * it is cached.
+     *
+     * @param mapColorCache The map color cache to set
+     * @throws IllegalStateException if a map color cache is already set
+     */
+    public static void setMapColorCache(@NotNull MapColorCache mapColorCache) {
+        if (MapPalette.mapColorCache != null) {
+            throw new IllegalStateException("Map color cache already set");
+        }
+        MapPalette.mapColorCache = mapColorCache;
+    }
+
+    /**
+     * Holds the closest palette color of every RGB color.
+     */
+    public interface MapColorCache {
+
+        /**
+         * Checks whether the colors are cached. Returns false while the cache
+         * is still being built.
+         *
+         * @return true if {@link #matchColor(Color)} may be called
+         */
+        boolean isCached();
+
+        /**
+         * Get the cached index of the closest matching color in the palette to
+         * the given color.
+         *
+         * @param color The Color to match.
+         * @return The index in the palette.
+         * @throws IllegalStateException if {@link #isCached()} returns false
+         * @deprecated Magic value
+         */
+        @Deprecated
+        byte matchColor(@NotNull Color color);
+    }
+
     /**
      * Get the value of the given color in the palette.
      *
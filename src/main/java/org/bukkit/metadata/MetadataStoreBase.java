@@ -1,18 +1,21 @@
 package org.bukkit.metadata;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.Validate;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 
 public abstract class MetadataStoreBase<T> {
-    private Map<String, Map<Plugin, MetadataValue>> metadataMap = new HashMap<String, Map<Plugin, MetadataValue>>();
+    private static final MetadataValue[] NO_VALUES = new MetadataValue[0];
+
+    // CatServer start - subject -> metadata key -> one value per plugin, read without locking
+    private final Map<Object, Map<String, MetadataValue[]>> metadataMap = new ConcurrentHashMap<Object, Map<String, MetadataValue[]>>();
+    // CatServer end
 
     /**
      * Adds a metadata value to an object. Each metadata value is owned by a
@@ -21,13 +24,9 @@ public abstract class MetadataStoreBase<T> {
      * newMetadataValue}. Multiple plugins can set independent values for the
      * same {@code metadataKey} without conflict.
      * <p>
-     * Implementation note: I considered using a {@link
-     * java.util.concurrent.locks.ReadWriteLock} for controlling access to
-     * {@code metadataMap}, but decided that the added overhead wasn't worth
-     * the finer grained access control.
-     * <p>
-     * Bukkit is almost entirely single threaded so locking overhead shouldn't
-     * pose a problem.
+     * Implementation note: lookups don't lock. Values are kept per subject,
+     * in arrays that are replaced rather than modified, and changes to a
+     * subject are serialized by the map.
      *
      * @param subject The object receiving the metadata.
      * @param metadataKey A unique key to identify this metadata.
@@ -36,17 +35,20 @@ public abstract class MetadataStoreBase<T> {
      *     is null
      * @see MetadataStore#setMetadata(Object, String, MetadataValue)
      */
-    public synchronized void setMetadata(@NotNull T subject, @NotNull String metadataKey, @NotNull MetadataValue newMetadataValue) {
+    public void setMetadata(@NotNull T subject, @NotNull String metadataKey, @NotNull MetadataValue newMetadataValue) {
         Validate.notNull(newMetadataValue, "Value cannot be null");
         Plugin owningPlugin = newMetadataValue.getOwningPlugin();
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> entry = metadataMap.get(key);
-        if (entry == null) {
-            entry = new WeakHashMap<Plugin, MetadataValue>(1);
-            metadataMap.put(key, entry);
-        }
-        entry.put(owningPlugin, newMetadataValue);
+        metadataMap.compute(getSubjectKey(subject), (subjectKey, entries) -> {
+            if (entries == null) {
+                entries = new ConcurrentHashMap<String, MetadataValue[]>(4);
+            }
+            MetadataValue[] values = without(entries.getOrDefault(metadataKey, NO_VALUES), owningPlugin);
+            values = Arrays.copyOf(values, values.length + 1);
+            values[values.length - 1] = newMetadataValue;
+            entries.put(metadataKey, values);
+            return entries;
+        });
     }
 
     /**
@@ -60,14 +62,20 @@ public abstract class MetadataStoreBase<T> {
      * @see MetadataStore#getMetadata(Object, String)
      */
     @NotNull
-    public synchronized List<MetadataValue> getMetadata(@NotNull T subject, @NotNull String metadataKey) {
-        String key = disambiguate(subject, metadataKey);
-        if (metadataMap.containsKey(key)) {
-            Collection<MetadataValue> values = metadataMap.get(key).values();
-            return Collections.unmodifiableList(new ArrayList<MetadataValue>(values));
-        } else {
+    public List<MetadataValue> getMetadata(@NotNull T subject, @NotNull String metadataKey) {
+        Map<String, MetadataValue[]> entries = metadataMap.get(getSubjectKey(subject));
+        MetadataValue[] values = entries == null ? null : entries.get(metadataKey);
+        if (values == null) {
             return Collections.emptyList();
         }
+        List<MetadataValue> list = new ArrayList<MetadataValue>(values.length);
+        for (MetadataValue value : values) {
+            // Values of plugins that are gone, like the weak map this replaces
+            if (value.getOwningPlugin() != null) {
+                list.add(value);
+            }
+        }
+        return Collections.unmodifiableList(list);
     }
 
     /**
@@ -78,9 +86,9 @@ public abstract class MetadataStoreBase<T> {
      * @param metadataKey the unique metadata key being queried.
      * @return the existence of the metadataKey within subject.
      */
-    public synchronized boolean hasMetadata(@NotNull T subject, @NotNull String metadataKey) {
-        String key = disambiguate(subject, metadataKey);
-        return metadataMap.containsKey(key);
+    public boolean hasMetadata(@NotNull T subject, @NotNull String metadataKey) {
+        Map<String, MetadataValue[]> entries = metadataMap.get(getSubjectKey(subject));
+        return entries != null && entries.containsKey(metadataKey);
     }
 
     /**
@@ -94,18 +102,21 @@ public abstract class MetadataStoreBase<T> {
      * @see MetadataStore#removeMetadata(Object, String,
      *     org.bukkit.plugin.Plugin)
      */
-    public synchronized void removeMetadata(@NotNull T subject, @NotNull String metadataKey, @NotNull Plugin owningPlugin) {
+    public void removeMetadata(@NotNull T subject, @NotNull String metadataKey, @NotNull Plugin owningPlugin) {
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> entry = metadataMap.get(key);
-        if (entry == null) {
-            return;
-        }
-
-        entry.remove(owningPlugin);
-        if (entry.isEmpty()) {
-            metadataMap.remove(key);
-        }
+        metadataMap.computeIfPresent(getSubjectKey(subject), (subjectKey, entries) -> {
+            MetadataValue[] values = entries.get(metadataKey);
+            if (values == null) {
+                return entries;
+            }
+            values = without(values, owningPlugin);
+            if (values.length == 0) {
+                entries.remove(metadataKey);
+            } else {
+                entries.put(metadataKey, values);
+            }
+            return entries.isEmpty() ? null : entries;
+        });
     }
 
     /**
@@ -117,14 +128,78 @@ public abstract class MetadataStoreBase<T> {
      * @throws IllegalArgumentException If plugin is null
      * @see MetadataStore#invalidateAll(org.bukkit.plugin.Plugin)
      */
-    public synchronized void invalidateAll(@NotNull Plugin owningPlugin) {
+    public void invalidateAll(@NotNull Plugin owningPlugin) {
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        for (Map<Plugin, MetadataValue> values : metadataMap.values()) {
-            if (values.containsKey(owningPlugin)) {
-                values.get(owningPlugin).invalidate();
+        for (Map<String, MetadataValue[]> entries : metadataMap.values()) {
+            for (MetadataValue[] values : entries.values()) {
+                int index = indexOf(values, owningPlugin);
+                if (index >= 0) {
+                    values[index].invalidate();
+                }
+            }
+        }
+    }
+
+    // CatServer start
+    /**
+     * Removes all metadata attached to an object, for example when it is
+     * unloaded.
+     *
+     * @param subject the object to remove the metadata from.
+     */
+    public void removeAll(@NotNull T subject) {
+        metadataMap.remove(getSubjectKey(subject));
+    }
+
+    /**
+     * Removes all metadata attached to the object with the given subject key.
+     *
+     * @param subjectKey the key returned by {@link #getSubjectKey(Object)}
+     */
+    protected void removeSubject(@NotNull Object subjectKey) {
+        metadataMap.remove(subjectKey);
+    }
+
+    /**
+     * Gets the key metadata of an object is stored under, which must follow
+     * the same rules as {@link #disambiguate(Object, String)}. Stores should
+     * override this to avoid building a string on every lookup, by default
+     * it is the disambiguated name for an empty metadata key.
+     *
+     * @param subject The object for which this key is being generated.
+     * @return a key equal for equivalent objects.
+     */
+    @NotNull
+    protected Object getSubjectKey(@NotNull T subject) {
+        return disambiguate(subject, "");
+    }
+
+    private static int indexOf(@NotNull MetadataValue[] values, @NotNull Plugin owningPlugin) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].getOwningPlugin() == owningPlugin) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copies values leaving out those owned by the given plugin or by plugins
+     * that have been garbage collected.
+     */
+    @NotNull
+    private static MetadataValue[] without(@NotNull MetadataValue[] values, @NotNull Plugin owningPlugin) {
+        int count = 0;
+        MetadataValue[] kept = new MetadataValue[values.length];
+        for (MetadataValue value : values) {
+            Plugin plugin = value.getOwningPlugin();
+            if (plugin != null && plugin != owningPlugin) {
+                kept[count++] = value;
             }
         }
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
     }
+    // CatServer end
 
     /**
      * Creates a unique name for the object receiving metadata by combining
@@ -14,12 +14,26 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * Base Permissible for use in any Permissible object via proxy or extension
+ * <p>
+ * Permissions are recalculated incrementally: the defaults and each
+ * attachment are expanded once into a map that is kept until they change,
+ * and only the permissions set by the defaults or attachments that changed
+ * since the last recalculation are looked up again. Start with
+ * -Dbukkit.permissions.incremental=false to recalculate everything every
+ * time instead.
  */
 public class PermissibleBase implements Permissible {
+    private static final boolean INCREMENTAL = Boolean.parseBoolean(System.getProperty("bukkit.permissions.incremental", "true"));
+    // Expanded default permissions for non-ops and ops, shared by every permissible
+    private static final DefaultClosure[] defaultClosures = new DefaultClosure[2];
+
     private final ServerOperator opable;
     private final Permissible parent;
     private final List<PermissionAttachment> attachments = new LinkedList<PermissionAttachment>();
     private final Map<String, PermissionAttachmentInfo> permissions = new HashMap<String, PermissionAttachmentInfo>();
+    // What permissions was calculated from: the op state for the defaults, then the attachments
+    private Object[] sources;
+    private Map<String, Boolean>[] sourcePermissions;
 
     public PermissibleBase(@Nullable ServerOperator opable) {
         this.opable = opable;
@@ -156,6 +170,11 @@ public class PermissibleBase implements Permissible {
 
     @Override
     public void recalculatePermissions() {
+        if (INCREMENTAL) {
+            recalculateChanged();
+            return;
+        }
+
         clearPermissions();
         Set<Permission> defaults = Bukkit.getServer().getPluginManager().getDefaultPermissions(isOp());
         Bukkit.getServer().getPluginManager().subscribeToDefaultPerms(isOp(), parent);
@@ -172,6 +191,90 @@ public class PermissibleBase implements Permissible {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void recalculateChanged() {
+        boolean op = isOp();
+        Object[] sources = new Object[attachments.size() + 1];
+        Map<String, Boolean>[] sourcePermissions = new Map[sources.length];
+        sources[0] = op;
+        sourcePermissions[0] = getDefaultClosure(op);
+        int i = 1;
+        for (PermissionAttachment attachment : attachments) {
+            sources[i] = attachment;
+            sourcePermissions[i++] = attachment.getClosure();
+        }
+
+        Bukkit.getServer().getPluginManager().unsubscribeFromDefaultPerms(!op, parent);
+        Bukkit.getServer().getPluginManager().subscribeToDefaultPerms(op, parent);
+
+        // Permissions set by a source that was added, removed or changed
+        Set<String> changed = new HashSet<String>();
+        if (this.sources == null) {
+            for (Map<String, Boolean> perms : sourcePermissions) {
+                changed.addAll(perms.keySet());
+            }
+        } else {
+            for (int j = 0; j < this.sources.length; j++) {
+                int k = indexOf(sources, this.sources[j]);
+                if (k == -1 || sourcePermissions[k] != this.sourcePermissions[j]) {
+                    changed.addAll(this.sourcePermissions[j].keySet());
+                }
+            }
+            for (int k = 0; k < sources.length; k++) {
+                int j = indexOf(this.sources, sources[k]);
+                if (j == -1 || sourcePermissions[k] != this.sourcePermissions[j]) {
+                    changed.addAll(sourcePermissions[k].keySet());
+                }
+            }
+        }
+        this.sources = sources;
+        this.sourcePermissions = sourcePermissions;
+
+        // The last source setting a permission decides its value
+        for (String name : changed) {
+            int k = sources.length - 1;
+            while (k >= 0 && !sourcePermissions[k].containsKey(name)) {
+                k--;
+            }
+
+            if (k >= 0) {
+                PermissionAttachment attachment = k == 0 ? null : (PermissionAttachment) sources[k];
+                permissions.put(name, new PermissionAttachmentInfo(parent, name, attachment, sourcePermissions[k].get(name)));
+                Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
+            } else if (permissions.remove(name) != null) {
+                Bukkit.getServer().getPluginManager().unsubscribeFromPermission(name, parent);
+            }
+        }
+    }
+
+    private static int indexOf(@NotNull Object[] sources, @NotNull Object source) {
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == source) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the default permissions of ops or non-ops with their children
+     * expanded, as set on every permissible before its attachments.
+     */
+    @NotNull
+    private static Map<String, Boolean> getDefaultClosure(boolean op) {
+        int generation = Permission.getClosureGeneration();
+        DefaultClosure closure = defaultClosures[op ? 1 : 0];
+        if (closure == null || closure.generation != generation) {
+            Map<String, Boolean> result = new HashMap<String, Boolean>();
+            for (Permission perm : Bukkit.getServer().getPluginManager().getDefaultPermissions(op)) {
+                result.put(perm.getName().toLowerCase(java.util.Locale.ENGLISH), true);
+                result.putAll(perm.getChildClosure());
+            }
+            defaultClosures[op ? 1 : 0] = closure = new DefaultClosure(generation, result);
+        }
+        return closure.permissions;
+    }
+
     public synchronized void clearPermissions() {
         Set<String> perms = permissions.keySet();
 
@@ -183,6 +286,8 @@ public class PermissibleBase implements Permissible {
         Bukkit.getServer().getPluginManager().unsubscribeFromDefaultPerms(true, parent);
 
         permissions.clear();
+        sources = null;
+        sourcePermissions = null;
     }
 
     private void calculateChildPermissions(@NotNull Map<String, Boolean> children, boolean invert, @Nullable PermissionAttachment attachment) {
@@ -248,6 +353,16 @@ public class PermissibleBase implements Permissible {
         return new HashSet<PermissionAttachmentInfo>(permissions.values());
     }
 
+    private static final class DefaultClosure {
+        private final int generation;
+        private final Map<String, Boolean> permissions;
+
+        private DefaultClosure(int generation, @NotNull Map<String, Boolean> permissions) {
+            this.generation = generation;
+            this.permissions = permissions;
+        }
+    }
+
     private static class RemoveAttachmentRunnable implements Runnable {
         private final PermissionAttachment attachment;
 
@@ -19,10 +19,13 @@ import org.jetbrains.annotations.Nullable;
 public class Permission {
     public static final PermissionDefault DEFAULT_PERMISSION = PermissionDefault.OP;
 
+    private static volatile int closureGeneration;
+
     private final String name;
     private final Map<String, Boolean> children = new LinkedHashMap<String, Boolean>();
     private PermissionDefault defaultValue = DEFAULT_PERMISSION;
     private String description;
+    private volatile ChildClosure childClosure;
 
     public Permission(@NotNull String name) {
         this(name, null, null, null);
@@ -164,6 +167,7 @@ public class Permission {
      * automatically called after modifying the default value
      */
     public void recalculatePermissibles() {
+        invalidateChildClosures();
         Set<Permissible> perms = getPermissibles();
 
         Bukkit.getServer().getPluginManager().recalculatePermissionDefaults(this);
@@ -173,6 +177,68 @@ public class Permission {
         }
     }
 
+    /**
+     * Gets every permission set by the children of this permission and
+     * their own children, with the value each ends up with, as {@link
+     * Permissible}s apply them.
+     * <p>
+     * The result is shared by all permissibles and computed again after any
+     * permission is recalculated, registered or removed.
+     *
+     * @return the expanded children, which must not be modified
+     */
+    @NotNull
+    Map<String, Boolean> getChildClosure() {
+        final int generation = closureGeneration;
+        ChildClosure closure = childClosure;
+        if (closure == null || closure.generation != generation) {
+            Map<String, Boolean> result = new LinkedHashMap<String, Boolean>();
+            expandChildren(children, result);
+            childClosure = closure = new ChildClosure(generation, result);
+        }
+        return closure.children;
+    }
+
+    /**
+     * Expands permissions into every permission they set, later ones
+     * overriding earlier ones.
+     *
+     * @param children the permissions and their values
+     * @param result the map to put the expanded permissions into
+     */
+    static void expandChildren(@NotNull Map<String, Boolean> children, @NotNull Map<String, Boolean> result) {
+        for (Map.Entry<String, Boolean> entry : children.entrySet()) {
+            String name = entry.getKey();
+            Permission perm = Bukkit.getServer().getPluginManager().getPermission(name);
+            boolean value = entry.getValue();
+
+            result.put(name.toLowerCase(java.util.Locale.ENGLISH), value);
+            if (perm != null) {
+                // A child set to false inverts everything below it
+                for (Map.Entry<String, Boolean> child : perm.getChildClosure().entrySet()) {
+                    result.put(child.getKey(), child.getValue() == value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards the expanded children of every permission.
+     * <p>
+     * Called when permissions are registered or removed, and by {@link
+     * #recalculatePermissibles()}.
+     */
+    public static void invalidateChildClosures() {
+        closureGeneration++;
+    }
+
+    /**
+     * Gets the number of times the expanded children were discarded.
+     */
+    static int getClosureGeneration() {
+        return closureGeneration;
+    }
+
     /**
      * Adds this permission to the specified parent permission.
      * <p>
@@ -351,4 +417,14 @@ public class Permission {
 
         return children;
     }
+
+    private static final class ChildClosure {
+        private final int generation;
+        private final Map<String, Boolean> children;
+
+        private ChildClosure(int generation, @NotNull Map<String, Boolean> children) {
+            this.generation = generation;
+            this.children = children;
+        }
+    }
 }
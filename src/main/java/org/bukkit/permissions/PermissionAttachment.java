@@ -15,6 +15,11 @@ public class PermissionAttachment {
     private final Map<String, Boolean> permissions = new LinkedHashMap<String, Boolean>();
     private final Permissible permissible;
     private final Plugin plugin;
+    // Expanded permissions, see getClosure
+    private Map<String, Boolean> closure;
+    private Map<String, Boolean> closureSource;
+    private int closureGeneration;
+    private boolean closureDirty = true;
 
     public PermissionAttachment(@NotNull Plugin plugin, @NotNull Permissible permissible) {
         if (plugin == null) {
@@ -90,6 +95,7 @@ public class PermissionAttachment {
      */
     public void setPermission(@NotNull String name, boolean value) {
         permissions.put(name.toLowerCase(java.util.Locale.ENGLISH), value);
+        closureDirty = true;
         permissible.recalculatePermissions();
     }
 
@@ -113,6 +119,7 @@ public class PermissionAttachment {
      */
     public void unsetPermission(@NotNull String name) {
         permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH));
+        closureDirty = true;
         permissible.recalculatePermissions();
     }
 
@@ -128,6 +135,31 @@ public class PermissionAttachment {
         unsetPermission(perm.getName());
     }
 
+    /**
+     * Gets every permission this attachment sets, with the children of its
+     * permissions expanded.
+     * <p>
+     * Kept until the attachment or any permission changes, so a
+     * {@link PermissibleBase} only recalculates the attachments that did.
+     * The permissions are compared against the ones the closure was built
+     * from, as some plugins fill them through reflection.
+     *
+     * @return the expanded permissions, which must not be modified
+     */
+    @NotNull
+    Map<String, Boolean> getClosure() {
+        final int generation = Permission.getClosureGeneration();
+        if (closureDirty || closureGeneration != generation || !permissions.equals(closureSource)) {
+            Map<String, Boolean> result = new LinkedHashMap<String, Boolean>();
+            Permission.expandChildren(permissions, result);
+            closure = result;
+            closureSource = new LinkedHashMap<String, Boolean>(permissions);
+            closureGeneration = generation;
+            closureDirty = false;
+        }
+        return closure;
+    }
+
     /**
      * Removes this attachment from its registered {@link Permissible}
      *
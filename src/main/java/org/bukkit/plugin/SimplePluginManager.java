@@ -550,6 +550,7 @@ public final class SimplePluginManager implements PluginManager {
             permissions.clear();
             defaultPerms.get(true).clear();
             defaultPerms.get(false).clear();
+            Permission.invalidateChildClosures();
         }
     }
 
@@ -700,6 +701,7 @@ public final class SimplePluginManager implements PluginManager {
         }
 
         permissions.put(name, perm);
+        Permission.invalidateChildClosures();
         calculatePermissionDefault(perm, dirty);
     }
 
@@ -717,6 +719,7 @@ public final class SimplePluginManager implements PluginManager {
     @Override
     public void removePermission(@NotNull String name) {
         permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH));
+        Permission.invalidateChildClosures();
     }
 
     @Override
@@ -871,5 +874,6 @@ public final class SimplePluginManager implements PluginManager {
      */
     public void useTimings(boolean use) {
         useTimings = use;
+        org.spigotmc.CustomTimingsHandler.setEnabled(use); // CatServer
     }
 }
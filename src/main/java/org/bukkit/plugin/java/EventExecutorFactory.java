@@ -0,0 +1,103 @@
+package org.bukkit.plugin.java;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the invokers used by {@link JavaPluginLoader} to call
+ * {@link org.bukkit.event.EventHandler} methods.
+ * <p>
+ * Handlers are called through a {@link MethodHandle} adapted to the
+ * executor signature, falling back to reflection if the handle can't be
+ * created. Spinning a class per handler is not possible from here: plugin
+ * classes live in the unnamed module of their class loader, and lookups into
+ * them from the game layer lack the full privilege LambdaMetafactory needs.
+ */
+final class EventExecutorFactory {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType EXECUTE_TYPE = MethodType.methodType(void.class, Listener.class, Event.class);
+
+    // Plugins commonly register a fresh listener instance per arena/game, only create one invoker per handler method
+    private static final ClassValue<Map<Method, EventExecutor>> INVOKERS = new ClassValue<Map<Method, EventExecutor>>() {
+        @Override
+        protected Map<Method, EventExecutor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<Method, EventExecutor>();
+        }
+    };
+
+    private EventExecutorFactory() {
+    }
+
+    /**
+     * Gets an invoker for the given handler method. The returned executor
+     * does not check the event type, callers must do so before invoking it.
+     *
+     * @param method the handler method, already made accessible
+     * @return an executor calling the handler method
+     */
+    @NotNull
+    static EventExecutor create(@NotNull final Method method) {
+        return INVOKERS.get(method.getDeclaringClass()).computeIfAbsent(method, EventExecutorFactory::createUncached);
+    }
+
+    @NotNull
+    private static EventExecutor createUncached(@NotNull final Method method) {
+        try {
+            return new MethodHandleEventExecutor(method);
+        } catch (Throwable t) {
+            return new ReflectiveEventExecutor(method);
+        }
+    }
+
+    private static final class MethodHandleEventExecutor implements EventExecutor {
+        private final MethodHandle handle;
+
+        private MethodHandleEventExecutor(@NotNull Method method) throws IllegalAccessException {
+            // The method is already accessible, so no private lookup into the plugin's module is needed
+            MethodHandle handle = LOOKUP.unreflect(method);
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Listener.class);
+            }
+            this.handle = handle.asType(EXECUTE_TYPE);
+        }
+
+        @Override
+        public void execute(@NotNull Listener listener, @NotNull Event event) throws EventException {
+            try {
+                handle.invokeExact(listener, event);
+            } catch (Throwable t) {
+                throw new EventException(t);
+            }
+        }
+    }
+
+    private static final class ReflectiveEventExecutor implements EventExecutor {
+        private final Method method;
+
+        private ReflectiveEventExecutor(@NotNull Method method) {
+            this.method = method;
+        }
+
+        @Override
+        public void execute(@NotNull Listener listener, @NotNull Event event) throws EventException {
+            try {
+                method.invoke(listener, event);
+            } catch (InvocationTargetException ex) {
+                throw new EventException(ex.getCause());
+            } catch (Throwable t) {
+                throw new EventException(t);
+            }
+        }
+    }
+}
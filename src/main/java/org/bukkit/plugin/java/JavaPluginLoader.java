@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -302,6 +301,7 @@ public final class JavaPluginLoader implements PluginLoader {
             }
 
             final CustomTimingsHandler timings = new CustomTimingsHandler("Plugin: " + plugin.getDescription().getFullName() + " Event: " + listener.getClass().getName() + "::" + method.getName() + "(" + eventClass.getSimpleName() + ")", pluginParentTimer); // Spigot
+            final EventExecutor invoker = EventExecutorFactory.create(method); // CatServer - generated invoker instead of Method.invoke
             EventExecutor executor = new EventExecutor() {
                 @Override
                 public void execute(@NotNull Listener listener, @NotNull Event event) throws EventException {
@@ -311,10 +311,10 @@ public final class JavaPluginLoader implements PluginLoader {
                         }
                         boolean isAsync = event.isAsynchronous();
                         if (!isAsync) timings.startTiming();
-                        method.invoke(listener, event);
+                        invoker.execute(listener, event);
                         if (!isAsync) timings.stopTiming();
-                    } catch (InvocationTargetException ex) {
-                        throw new EventException(ex.getCause());
+                    } catch (EventException ex) {
+                        throw ex;
                     } catch (Throwable t) {
                         throw new EventException(t);
                     }
@@ -5,6 +5,7 @@ import catserver.server.patcher.PatcherManager;
 import catserver.server.remapper.ClassInheritanceProvider;
 import catserver.server.remapper.CatServerRemapper;
 import catserver.server.remapper.MappingLoader;
+import catserver.server.remapper.PluginClassCache;
 import catserver.server.remapper.ReflectionTransformer;
 import catserver.server.remapper.RemapRules;
 import cpw.mods.modlauncher.TransformingClassLoader;
@@ -17,8 +18,10 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.CodeSigner;
 import java.security.CodeSource;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +35,7 @@ import net.md_5.specialsource.repo.RuntimeRepo;
 import net.minecraft.server.MinecraftServer;
 import org.apache.commons.lang3.Validate;
 import org.bukkit.plugin.InvalidPluginException;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.SimplePluginManager;
 import org.jetbrains.annotations.NotNull;
@@ -59,6 +63,7 @@ public final class PluginClassLoader extends URLClassLoader {
     private JarMapping jarMapping;
 
     private IPatcher patcher;
+    private PluginClassCache classCache;
 
     static {
         ClassLoader.registerAsParallelCapable();
@@ -85,6 +90,7 @@ public final class PluginClassLoader extends URLClassLoader {
         this.remapper = new CatServerRemapper(jarMapping);
 
         this.patcher = PatcherManager.getPluginPatcher(description.getName());
+        this.classCache = PluginClassCache.open(description.getName(), file, getDependencyFiles(), patcher); // CatServer
 
         try {
             Class<?> jarClass;
@@ -201,6 +207,22 @@ public final class PluginClassLoader extends URLClassLoader {
         return classes.keySet();
     }
 
+    // CatServer start - jars of the loaded dependencies, part of the class cache key
+    @NotNull
+    private List<File> getDependencyFiles() {
+        List<File> files = new ArrayList<File>();
+        List<String> dependencies = new ArrayList<String>(description.getDepend());
+        dependencies.addAll(description.getSoftDepend());
+        for (String dependency : dependencies) {
+            Plugin plugin = loader.server.getPluginManager().getPlugin(dependency);
+            if (plugin instanceof JavaPlugin) {
+                files.add(((JavaPlugin) plugin).getFile());
+            }
+        }
+        return files;
+    }
+    // CatServer end
+
     synchronized void initialize(@NotNull JavaPlugin javaPlugin) {
         Validate.notNull(javaPlugin, "Initializing plugin cannot be null");
         Validate.isTrue(javaPlugin.getClass().getClassLoader() == this, "Cannot initialize plugin outside of this class loader");
@@ -222,15 +244,22 @@ public final class PluginClassLoader extends URLClassLoader {
             String path = name.replace('.', '/').concat(".class");
             URL url = this.findResource(path);
             if (url != null) {
-                InputStream stream = url.openStream();
-                if (stream != null) {
+                byte[] bytecode = classCache != null ? classCache.get(name) : null;
+                InputStream stream = bytecode == null ? url.openStream() : null;
+                if (bytecode != null || stream != null) {
                     JarURLConnection jarURLConnection = (JarURLConnection) url.openConnection(); // parses only
                     URL jarURL = jarURLConnection.getJarFileURL();
 
-                    // Remap the classes
-                    byte[] bytecode = remapper.remapClassFile(stream, RuntimeRepo.getInstance());
-                    if (this.patcher != null) bytecode = this.patcher.transform(name.replace("/", "."), bytecode);
-                    bytecode = ReflectionTransformer.transform(bytecode);
+                    if (bytecode == null) {
+                        long start = System.nanoTime();
+                        // Remap the classes
+                        bytecode = remapper.remapClassFile(stream, RuntimeRepo.getInstance());
+                        if (this.patcher != null) bytecode = this.patcher.transform(name.replace("/", "."), bytecode);
+                        bytecode = ReflectionTransformer.transform(bytecode);
+                        if (classCache != null) classCache.put(name, bytecode, System.nanoTime() - start);
+                    } else {
+                        ReflectionTransformer.restoreRules(bytecode);
+                    }
 
                     // Fix the package
                     int dot = name.lastIndexOf('.');
@@ -54,6 +54,7 @@ public final class DefaultPermissions {
     public static Permission registerPermission(@NotNull String name, @Nullable String desc, @NotNull Permission parent) {
         Permission perm = registerPermission(name, desc);
         parent.getChildren().put(perm.getName(), true);
+        Permission.invalidateChildClosures();
         return perm;
     }
 
@@ -67,6 +68,7 @@ public final class DefaultPermissions {
     public static Permission registerPermission(@NotNull String name, @Nullable String desc, @Nullable PermissionDefault def, @NotNull Permission parent) {
         Permission perm = registerPermission(name, desc, def);
         parent.getChildren().put(perm.getName(), true);
+        Permission.invalidateChildClosures();
         return perm;
     }
 
@@ -80,6 +82,7 @@ public final class DefaultPermissions {
     public static Permission registerPermission(@NotNull String name, @Nullable String desc, @Nullable PermissionDefault def, @Nullable Map<String, Boolean> children, @NotNull Permission parent) {
         Permission perm = registerPermission(name, desc, def, children);
         parent.getChildren().put(perm.getName(), true);
+        Permission.invalidateChildClosures();
         return perm;
     }
 
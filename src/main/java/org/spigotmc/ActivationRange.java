@@ -1,6 +1,11 @@
 package org.spigotmc;
 
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.Arrays;
+import java.util.function.Consumer;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
 import net.minecraft.world.entity.*;
 import net.minecraft.world.entity.ambient.AmbientCreature;
 import net.minecraft.world.entity.animal.Animal;
@@ -17,10 +22,19 @@ import net.minecraft.world.entity.npc.Villager;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.entity.projectile.*;
 import net.minecraft.world.entity.raid.Raider;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.AABB;
 import org.bukkit.craftbukkit.v1_18_R2.SpigotTimings;
 
+/**
+ * Activation ranges of one world.
+ * <p>
+ * Each tick the chunks within activation range of a player are indexed with
+ * the distance to their nearest player, so every entity is visited once, from
+ * its own chunk: entities of chunks too far for their type are skipped, the
+ * rest are checked against the players near their chunk.
+ */
 public class ActivationRange {
 
     public enum ActivationType {
@@ -28,11 +42,41 @@ public class ActivationRange {
         ANIMAL,
         RAIDER,
         MISC;
-
-        AABB boundingBox = new AABB(0, 0, 0, 0, 0, 0);
     }
 
-    static AABB maxBB = new AABB(0, 0, 0, 0, 0, 0);
+    /**
+     * How far an entity's box may reach out of its chunk, the bound vanilla's
+     * entity section lookups use as well
+     */
+    private static final double OVERHANG = 2.0D;
+
+    // Ranges of the current tick by ActivationType ordinal
+    private final double[] ranges = new double[ActivationType.values().length];
+
+    // Boxes of the players entities are activated around
+    private AABB[] players = new AABB[16];
+    private int playerCount;
+
+    // Indexed chunks, one slot per chunk near a player
+    private final Long2IntOpenHashMap chunkSlots = new Long2IntOpenHashMap();
+    private long[] slotChunk = new long[64];
+    private double[] slotNear = new double[64];
+    private double[] slotFar = new double[64];
+    private int[] slotNearest = new int[64];
+    private int[] slotLinks = new int[64];
+    private int slotCount;
+
+    // Players near each slot, as linked lists
+    private int[] linkPlayer = new int[256];
+    private int[] linkNext = new int[256];
+    private int linkCount;
+
+    private int currentSlot;
+    private final Consumer<Entity> activator = this::activateEntity;
+
+    public ActivationRange() {
+        chunkSlots.defaultReturnValue(-1);
+    }
 
     /**
      * Initializes an entities type on construction to specify what group this
@@ -90,6 +134,11 @@ public class ActivationRange {
      */
     public static void activateEntities(Level world) {
         SpigotTimings.entityActivationCheckTimer.startTiming();
+        world.activationRange.activate((ServerLevel) world);
+        SpigotTimings.entityActivationCheckTimer.stopTiming();
+    }
+
+    private void activate(ServerLevel world) {
         final int miscActivationRange = world.spigotConfig.miscActivationRange;
         final int raiderActivationRange = world.spigotConfig.raiderActivationRange;
         final int animalActivationRange = world.spigotConfig.animalActivationRange;
@@ -100,21 +149,107 @@ public class ActivationRange {
         maxRange = Math.max(maxRange, miscActivationRange);
         maxRange = Math.min((world.spigotConfig.simulationDistance << 4) - 8, maxRange);
 
+        // Entities further than maxRange were never looked at, which caps every range
+        ranges[ActivationType.MISC.ordinal()] = Math.min(miscActivationRange, maxRange);
+        ranges[ActivationType.RAIDER.ordinal()] = Math.min(raiderActivationRange, maxRange);
+        ranges[ActivationType.ANIMAL.ordinal()] = Math.min(animalActivationRange, maxRange);
+        ranges[ActivationType.MONSTER.ordinal()] = Math.min(monsterActivationRange, maxRange);
+
+        index(world, maxRange);
+        for (int slot = 0; slot < slotCount; slot++) {
+            currentSlot = slot;
+            world.entityManager.forEachEntity(slotChunk[slot], activator);
+        }
+    }
+
+    /**
+     * Indexes the chunks whose entities may be within maxRange of a player.
+     * Per chunk it keeps a lower bound of the distance of its entities to any
+     * player, the player nearest to all of the chunk, and the players close
+     * enough to matter. Distances are per axis, like the boxes they replace.
+     */
+    private void index(ServerLevel world, int maxRange) {
+        chunkSlots.clear();
+        slotCount = 0;
+        linkCount = 0;
+        playerCount = 0;
+
         for (Player player : world.players()) {
             player.activatedTick = MinecraftServer.currentTick;
             if (world.spigotConfig.ignoreSpectatorActivation && player.isSpectator()) {
                 continue;
             }
 
-            maxBB = player.getBoundingBox().inflate(maxRange, 256, maxRange);
-            ActivationType.MISC.boundingBox = player.getBoundingBox().inflate(miscActivationRange, 256, miscActivationRange);
-            ActivationType.RAIDER.boundingBox = player.getBoundingBox().inflate(raiderActivationRange, 256, raiderActivationRange);
-            ActivationType.ANIMAL.boundingBox = player.getBoundingBox().inflate(animalActivationRange, 256, animalActivationRange);
-            ActivationType.MONSTER.boundingBox = player.getBoundingBox().inflate(monsterActivationRange, 256, monsterActivationRange);
+            final AABB box = player.getBoundingBox();
+            if (playerCount == players.length) {
+                players = Arrays.copyOf(players, playerCount * 2);
+            }
+            final int index = playerCount++;
+            players[index] = box;
+
+            final int minChunkX = Mth.floor((box.minX - maxRange - OVERHANG) / 16.0D);
+            final int maxChunkX = Mth.floor((box.maxX + maxRange + OVERHANG) / 16.0D);
+            final int minChunkZ = Mth.floor((box.minZ - maxRange - OVERHANG) / 16.0D);
+            final int maxChunkZ = Mth.floor((box.maxZ + maxRange + OVERHANG) / 16.0D);
+            for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                final double minX = chunkX << 4;
+                final double maxX = minX + 16.0D;
+                for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                    final double minZ = chunkZ << 4;
+                    final double maxZ = minZ + 16.0D;
+                    // Nearest an entity of the chunk can be to the player
+                    final double near = Math.max(
+                            Math.max(box.minX - maxX, minX - box.maxX),
+                            Math.max(box.minZ - maxZ, minZ - box.maxZ)) - OVERHANG;
+                    if (near >= maxRange) {
+                        continue;
+                    }
+                    // Range that covers the whole chunk
+                    final double far = Math.max(
+                            Math.max(box.minX - minX, maxX - box.maxX),
+                            Math.max(box.minZ - minZ, maxZ - box.maxZ));
+
+                    final int slot = slot(ChunkPos.asLong(chunkX, chunkZ));
+                    if (near < slotNear[slot]) {
+                        slotNear[slot] = near;
+                    }
+                    if (far < slotFar[slot]) {
+                        slotFar[slot] = far;
+                        slotNearest[slot] = index;
+                    }
+                    if (linkCount == linkPlayer.length) {
+                        linkPlayer = Arrays.copyOf(linkPlayer, linkCount * 2);
+                        linkNext = Arrays.copyOf(linkNext, linkCount * 2);
+                    }
+                    linkPlayer[linkCount] = index;
+                    linkNext[linkCount] = slotLinks[slot];
+                    slotLinks[slot] = linkCount++;
+                }
+            }
+        }
+        // Drop the boxes of players that have left
+        Arrays.fill(players, playerCount, players.length, null);
+    }
 
-            world.getEntities().get(maxBB, ActivationRange::activateEntity);
+    private int slot(long chunk) {
+        int slot = chunkSlots.get(chunk);
+        if (slot == -1) {
+            slot = slotCount++;
+            if (slot == slotChunk.length) {
+                final int size = slot * 2;
+                slotChunk = Arrays.copyOf(slotChunk, size);
+                slotNear = Arrays.copyOf(slotNear, size);
+                slotFar = Arrays.copyOf(slotFar, size);
+                slotNearest = Arrays.copyOf(slotNearest, size);
+                slotLinks = Arrays.copyOf(slotLinks, size);
+            }
+            slotChunk[slot] = chunk;
+            slotNear[slot] = Double.MAX_VALUE;
+            slotFar[slot] = Double.MAX_VALUE;
+            slotLinks[slot] = -1;
+            chunkSlots.put(chunk, slot);
         }
-        SpigotTimings.entityActivationCheckTimer.stopTiming();
+        return slot;
     }
 
     /**
@@ -122,18 +257,41 @@ public class ActivationRange {
      *
      * @param entity
      */
-    private static void activateEntity(Entity entity) {
+    private void activateEntity(Entity entity) {
         if (MinecraftServer.currentTick > entity.activatedTick) {
             if (entity.defaultActivationState) {
                 entity.activatedTick = MinecraftServer.currentTick;
                 return;
             }
-            if (entity.activationType.boundingBox.intersects(entity.getBoundingBox())) {
+            final double range = ranges[entity.activationType.ordinal()];
+            if (slotNear[currentSlot] >= range) {
+                return;
+            }
+            final AABB box = entity.getBoundingBox();
+            // The player covering the whole chunk almost always answers, otherwise try the others
+            if (slotFar[currentSlot] < range && inRange(players[slotNearest[currentSlot]], range, box)) {
                 entity.activatedTick = MinecraftServer.currentTick;
+                return;
+            }
+            for (int link = slotLinks[currentSlot]; link != -1; link = linkNext[link]) {
+                if (inRange(players[linkPlayer[link]], range, box)) {
+                    entity.activatedTick = MinecraftServer.currentTick;
+                    return;
+                }
             }
         }
     }
 
+    /**
+     * Same as {@code player.inflate(range, 256, range).intersects(entity)}
+     * without creating the box.
+     */
+    private static boolean inRange(AABB player, double range, AABB entity) {
+        return entity.minX < player.maxX + range && entity.maxX > player.minX - range
+                && entity.minY < player.maxY + 256 && entity.maxY > player.minY - 256
+                && entity.minZ < player.maxZ + range && entity.maxZ > player.minZ - range;
+    }
+
     /**
      * If an entity is not in range, do some more checks to see if we should
      * give it a shot.
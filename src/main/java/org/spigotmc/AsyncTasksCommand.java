@@ -0,0 +1,75 @@
+package org.spigotmc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.craftbukkit.v1_18_R2.scheduler.CraftAsyncExecutor;
+import org.bukkit.craftbukkit.v1_18_R2.scheduler.CraftScheduler;
+import org.bukkit.craftbukkit.v1_18_R2.scheduler.CraftTaskBudget;
+
+public class AsyncTasksCommand extends Command
+{
+
+    public AsyncTasksCommand(String name)
+    {
+        super( name );
+        this.description = "Shows the async task queue and latency and the sync task budget of each plugin, and the login authentication queue";
+        this.usageMessage = "/asynctasks";
+        this.setPermission( "bukkit.command.asynctasks" );
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String currentAlias, String[] args)
+    {
+        if ( !testPermission( sender ) )
+        {
+            return true;
+        }
+
+        CraftAsyncExecutor executor = ( (CraftScheduler) Bukkit.getScheduler() ).getAsyncExecutor();
+        StringBuilder header = new StringBuilder( ChatColor.GOLD + "Async scheduler mode: " + ChatColor.GREEN + executor.getMode() );
+        if ( executor.getThreadCount() >= 0 )
+        {
+            header.append( ChatColor.GOLD ).append( ", threads: " ).append( ChatColor.GREEN ).append( executor.getThreadCount() ).append( '/' ).append( executor.getMaxThreads() );
+        }
+        sender.sendMessage( header.toString() );
+
+        List<CraftAsyncExecutor.PluginStatistics> statistics = executor.getStatistics();
+        statistics.sort( (a, b) -> Integer.compare( b.getQueued() + b.getActive(), a.getQueued() + a.getActive() ) );
+        for ( CraftAsyncExecutor.PluginStatistics stats : statistics )
+        {
+            sender.sendMessage( ChatColor.GOLD + stats.getPlugin() + ": " + ChatColor.GREEN
+                    + "queued " + stats.getQueued() + ", active " + stats.getActive() + ", completed " + stats.getCompleted()
+                    + ", wait avg " + format( stats.getAverageWaitNanos() ) + " max " + format( stats.getMaxWaitNanos() )
+                    + ", run avg " + format( stats.getAverageRunNanos() ) );
+        }
+
+        LoginAuthenticator authenticator = LoginAuthenticator.get();
+        long[] latency = authenticator.getLatencyPercentiles( 50, 95, 99 );
+        sender.sendMessage( ChatColor.GOLD + "Login authentication (" + authenticator.getMode() + "): " + ChatColor.GREEN
+                + "queued " + authenticator.getQueued() + ", active " + authenticator.getActive() + ", completed " + authenticator.getCompleted()
+                + ", rejected " + authenticator.getRejected()
+                + ", latency p50 " + format( latency[0] ) + " p95 " + format( latency[1] ) + " p99 " + format( latency[2] ) );
+
+        if ( SpigotConfig.pluginTaskBudget )
+        {
+            sender.sendMessage( ChatColor.GOLD + "Sync task budgets:" );
+            for ( CraftTaskBudget budget : ( (CraftScheduler) Bukkit.getScheduler() ).getTaskBudgets() )
+            {
+                sender.sendMessage( ChatColor.GOLD + budget.getPlugin() + ": " + ChatColor.GREEN
+                        + "last tick " + format( budget.getLastTickNanos() ) + " of " + format( budget.getBudgetNanos() )
+                        + ", deferred " + budget.getDeferrals() );
+            }
+        }
+
+        return true;
+    }
+
+    private String format(long nanos)
+    {
+        return ( nanos >= TimeUnit.MILLISECONDS.toNanos( 1 ) ? TimeUnit.NANOSECONDS.toMillis( nanos ) + "ms" : TimeUnit.NANOSECONDS.toMicros( nanos ) + "us" );
+    }
+}
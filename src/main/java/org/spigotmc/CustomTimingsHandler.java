@@ -12,11 +12,19 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Provides custom timing sections for /timings merged.
+ * <p>
+ * Besides the flat totals, timers started on the main thread feed the call
+ * tree of {@link TickProfiler}.
  */
 public class CustomTimingsHandler {
 
     private static Queue<CustomTimingsHandler> HANDLERS = new ConcurrentLinkedQueue<CustomTimingsHandler>();
+    /**
+     * Mirrors {@link org.bukkit.plugin.PluginManager#useTimings()}, so disabled timers only cost a field read
+     */
+    private static volatile boolean enabled;
     /*========================================================================*/
+    final int id;
     private final String name;
     private final CustomTimingsHandler parent;
     private long count = 0;
@@ -33,9 +41,14 @@ public class CustomTimingsHandler {
     public CustomTimingsHandler(@NotNull String name, @Nullable CustomTimingsHandler parent) {
         this.name = name;
         this.parent = parent;
+        this.id = TickProfiler.register(name);
         HANDLERS.add(this);
     }
 
+    public static void setEnabled(boolean enabled) {
+        CustomTimingsHandler.enabled = enabled;
+    }
+
     /**
      * Prints the timings and extra data to the given stream.
      *
@@ -67,10 +80,11 @@ public class CustomTimingsHandler {
      * Resets all timings.
      */
     public static void reload() {
-        if (Bukkit.getPluginManager().useTimings()) {
+        if (enabled) {
             for (CustomTimingsHandler timings : HANDLERS) {
                 timings.reset();
             }
+            TickProfiler.reset();
         }
         TimingsCommand.timingStart = System.nanoTime();
     }
@@ -79,7 +93,7 @@ public class CustomTimingsHandler {
       * caused TPS loss.
       */
     public static void tick() {
-        if (Bukkit.getPluginManager().useTimings()) {
+        if (enabled) {
             for (CustomTimingsHandler timings : HANDLERS) {
                 if (timings.curTickTotal > 50000000) {
                     timings.violations += Math.ceil(timings.curTickTotal / 50000000);
@@ -87,6 +101,7 @@ public class CustomTimingsHandler {
                 timings.curTickTotal = 0;
                 timings.timingDepth = 0; // incase reset messes this up
             }
+            TickProfiler.tick();
         }
     }
 
@@ -95,22 +110,26 @@ public class CustomTimingsHandler {
      */
     public void startTiming() {
         // If second condtion fails we are already timing
-        if (Bukkit.getPluginManager().useTimings() && ++timingDepth == 1) {
+        if (enabled && ++timingDepth == 1) {
             start = System.nanoTime();
             if (parent != null && ++parent.timingDepth == 1) {
                 parent.start = start;
+                TickProfiler.enter(parent, start);
             }
+            TickProfiler.enter(this, start);
         }
     }
     /**
      * Stops timing a section of code.
      */
     public void stopTiming() {
-        if (Bukkit.getPluginManager().useTimings()) {
+        if (enabled) {
             if (--timingDepth != 0 || start == 0) {
                 return;
             }
-            long diff = System.nanoTime() - start;
+            long end = System.nanoTime();
+            long diff = end - start;
+            TickProfiler.exit(this, end);
             totalTime += diff;
             curTickTotal += diff;
             count++;
@@ -0,0 +1,86 @@
+package org.spigotmc;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.minecraft.network.Connection;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+public class FlushStatsCommand extends Command
+{
+
+    private static final int MAX_PLAYERS = 10;
+
+    public FlushStatsCommand(String name)
+    {
+        super( name );
+        this.description = "Shows how many packets and bytes are sent with each network flush, overall and for the busiest players";
+        this.usageMessage = "/flushstats";
+        this.setPermission( "bukkit.command.flushstats" );
+    }
+
+    @Override
+    public boolean execute(CommandSender sender, String currentAlias, String[] args)
+    {
+        if ( !testPermission( sender ) )
+        {
+            return true;
+        }
+
+        // The counters keep changing on the network threads, read each of them once
+        List<Stats> players = new ArrayList<>();
+        long flushes = 0;
+        long packets = 0;
+        long bytes = 0;
+        for ( ServerPlayer player : MinecraftServer.getServer().getPlayerList().getPlayers() )
+        {
+            Connection connection = player.connection.connection;
+            Stats stats = new Stats( player.getScoreboardName(), connection.getFlushes(), connection.getFlushedPackets(), connection.getFlushedBytes() );
+            players.add( stats );
+            flushes += stats.flushes;
+            packets += stats.packets;
+            bytes += stats.bytes;
+        }
+
+        sender.sendMessage( ChatColor.GOLD + "Flush consolidation: " + ChatColor.GREEN + ( SpigotConfig.flushConsolidation ? "enabled, max " + SpigotConfig.flushConsolidationMaxBytes + " bytes" : "disabled" ) );
+        sender.sendMessage( ChatColor.GOLD + "Online players: " + ChatColor.GREEN + "flushes " + flushes
+                + ", packets per flush " + format( flushes == 0 ? 0.0D : (double) packets / flushes )
+                + ", bytes per flush " + format( flushes == 0 ? 0.0D : (double) bytes / flushes ) );
+
+        players.sort( (a, b) -> Long.compare( b.flushes, a.flushes ) );
+        for ( Stats stats : players.subList( 0, Math.min( MAX_PLAYERS, players.size() ) ) )
+        {
+            sender.sendMessage( ChatColor.GOLD + stats.name + ": " + ChatColor.GREEN
+                    + "flushes " + stats.flushes
+                    + ", packets per flush " + format( stats.flushes == 0 ? 0.0D : (double) stats.packets / stats.flushes )
+                    + ", bytes per flush " + format( stats.flushes == 0 ? 0.0D : (double) stats.bytes / stats.flushes ) );
+        }
+
+        return true;
+    }
+
+    private String format(double value)
+    {
+        return String.valueOf( Math.round( value * 10.0D ) / 10.0D );
+    }
+
+    private static final class Stats
+    {
+
+        private final String name;
+        private final long flushes;
+        private final long packets;
+        private final long bytes;
+
+        private Stats(String name, long flushes, long packets, long bytes)
+        {
+            this.name = name;
+            this.flushes = flushes;
+            this.packets = packets;
+            this.bytes = bytes;
+        }
+    }
+}
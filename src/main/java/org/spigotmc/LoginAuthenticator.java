@@ -0,0 +1,200 @@
+package org.spigotmc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import net.minecraftforge.fml.util.thread.SidedThreadGroups;
+import org.bukkit.Bukkit;
+
+/**
+ * Runs the session server lookups and pre-login events of connecting
+ * players.
+ * <p>
+ * Logins are handed to a pool of settings.login-authenticator.threads
+ * threads instead of a new thread each. The threads belong to the Forge
+ * server thread group so that mods see logins on the server side, which is
+ * why virtual threads, that can't join a thread group, are not offered. At most
+ * settings.login-authenticator.max-pending logins may be queued or running,
+ * further logins are turned away until the backlog drains so that a flood of
+ * connections can't pile up threads. The latency of the last logins, from
+ * being queued to being done, is kept for /asynctasks.
+ */
+public final class LoginAuthenticator {
+
+    private static final int SAMPLES = 1024;
+
+    private static volatile LoginAuthenticator instance;
+
+    private final String mode;
+    private final int threads;
+    private final int maxPending;
+    private final Executor executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // Ring of the last latencies, guarded by itself
+    private final long[] latencies = new long[SAMPLES];
+    private int latencyCount;
+    private int latencyNext;
+
+    /**
+     * Gets the authenticator, created from the settings the first time a
+     * player logs in.
+     */
+    public static LoginAuthenticator get() {
+        LoginAuthenticator authenticator = instance;
+        if (authenticator == null) {
+            synchronized (LoginAuthenticator.class) {
+                authenticator = instance;
+                if (authenticator == null) {
+                    instance = authenticator = new LoginAuthenticator(SpigotConfig.loginAuthenticatorMode, SpigotConfig.loginAuthenticatorThreads, SpigotConfig.loginAuthenticatorMaxPending);
+                }
+            }
+        }
+        return authenticator;
+    }
+
+    private LoginAuthenticator(String mode, int threads, int maxPending) {
+        mode = mode.toLowerCase(Locale.ROOT);
+        this.threads = Math.max(1, threads);
+        this.maxPending = Math.max(1, maxPending);
+
+        if ("virtual".equals(mode)) {
+            // Virtual threads always run in their own thread group, Forge would treat them as client threads
+            Bukkit.getLogger().warning("Virtual threads can't run in the server thread group, using a bounded pool for login authentication");
+            mode = "bounded";
+        } else if (!"bounded".equals(mode)) {
+            Bukkit.getLogger().warning("Unknown login authenticator mode " + mode + ", using a bounded pool for login authentication");
+            mode = "bounded";
+        }
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(this.threads, this.threads, 1L, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setThreadFactory(SidedThreadGroups.SERVER).setNameFormat("User Authenticator #%d").setDaemon(true).build());
+        pool.allowCoreThreadTimeOut(true);
+        this.mode = mode;
+        this.executor = pool;
+    }
+
+    /**
+     * Queues a login.
+     *
+     * @param login the authentication and pre-login events of a player
+     * @return false if too many logins are pending, the player should be
+     *     disconnected
+     */
+    public boolean submit(final Runnable login) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+
+        final long queued = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    login.run();
+                } catch (Throwable t) {
+                    Bukkit.getLogger().log(Level.SEVERE, "Error authenticating login", t);
+                } finally {
+                    active.decrementAndGet();
+                    pending.decrementAndGet();
+                    completed.increment();
+                    record(System.nanoTime() - queued);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void record(long latency) {
+        synchronized (latencies) {
+            latencies[latencyNext] = latency;
+            latencyNext = (latencyNext + 1) % SAMPLES;
+            if (latencyCount < SAMPLES) {
+                latencyCount++;
+            }
+        }
+    }
+
+    /**
+     * Gets the mode in use, which may differ from the configured one if it
+     * was not available.
+     *
+     * @return the mode, currently always bounded
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * Gets the number of logins waiting for a thread.
+     */
+    public int getQueued() {
+        return Math.max(0, pending.get() - active.get());
+    }
+
+    /**
+     * Gets the number of logins being authenticated right now.
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * Gets the number of logins turned away because too many were pending.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets percentiles of the latency of the last logins.
+     *
+     * @param percentiles the percentiles to get, between 0 and 100
+     * @return the latencies in nanoseconds, in the same order, all 0 if no
+     *     login completed yet
+     */
+    public long[] getLatencyPercentiles(double... percentiles) {
+        final long[] samples;
+        synchronized (latencies) {
+            samples = Arrays.copyOf(latencies, latencyCount);
+        }
+        final long[] result = new long[percentiles.length];
+        if (samples.length == 0) {
+            return result;
+        }
+        Arrays.sort(samples);
+        for (int i = 0; i < percentiles.length; i++) {
+            final int index = (int) Math.ceil(Math.min(100.0D, Math.max(0.0D, percentiles[i])) / 100.0D * samples.length) - 1;
+            result[i] = samples[Math.max(0, index)];
+        }
+        return result;
+    }
+}
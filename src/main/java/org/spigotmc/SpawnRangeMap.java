@@ -0,0 +1,161 @@
+package org.spigotmc;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.ChunkPos;
+
+/**
+ * Number of players close enough to each chunk for mobs to spawn in it, for
+ * the vanilla range of 128 blocks and for the reduced mob-spawn-range.
+ * <p>
+ * A player counts for a chunk when it is not a spectator and the distance
+ * from the chunk's center to the player is below the range, exactly as the
+ * per player check it replaces. When a player moves only the chunks entering
+ * or leaving its range are updated, so looking up a chunk takes constant time
+ * however many players there are.
+ * <p>
+ * Updated once per tick from the chunk map's players, main thread only.
+ */
+public class SpawnRangeMap {
+
+    private static final double VANILLA_RANGE = 16384.0D;
+
+    private final Long2IntOpenHashMap vanilla = new Long2IntOpenHashMap();
+    private final Long2IntOpenHashMap reduced = new Long2IntOpenHashMap();
+    private final Map<ServerPlayer, Position> positions = new IdentityHashMap<ServerPlayer, Position>();
+    private double reducedRange = -1.0D;
+    private int tick = -1;
+
+    /**
+     * Brings the map up to date with the players' current positions, once
+     * per tick.
+     *
+     * @param players every player of the chunk map
+     * @param reducedRange the squared mob-spawn-range in blocks
+     */
+    public void update(Collection<ServerPlayer> players, double reducedRange) {
+        if (tick == MinecraftServer.currentTick && this.reducedRange == reducedRange) {
+            return;
+        }
+        tick = MinecraftServer.currentTick;
+
+        if (this.reducedRange != reducedRange) {
+            // Config reloaded, count every player again
+            for (Position position : positions.values()) {
+                move(reduced, this.reducedRange, position.counted, position.x, position.z, false, 0.0D, 0.0D);
+            }
+            for (Position position : positions.values()) {
+                move(reduced, reducedRange, false, 0.0D, 0.0D, position.counted, position.x, position.z);
+            }
+            this.reducedRange = reducedRange;
+        }
+
+        for (ServerPlayer player : players) {
+            Position position = positions.get(player);
+            if (position == null) {
+                position = new Position();
+                positions.put(player, position);
+            }
+            position.tick = tick;
+
+            final boolean counted = !player.isSpectator();
+            final double x = player.getX();
+            final double z = player.getZ();
+            if (counted == position.counted && (!counted || (x == position.x && z == position.z))) {
+                continue;
+            }
+            move(vanilla, VANILLA_RANGE, position.counted, position.x, position.z, counted, x, z);
+            move(reduced, reducedRange, position.counted, position.x, position.z, counted, x, z);
+            position.counted = counted;
+            position.x = x;
+            position.z = z;
+        }
+
+        // Players that left the world
+        for (Iterator<Position> iterator = positions.values().iterator(); iterator.hasNext(); ) {
+            final Position position = iterator.next();
+            if (position.tick != tick) {
+                move(vanilla, VANILLA_RANGE, position.counted, position.x, position.z, false, 0.0D, 0.0D);
+                move(reduced, reducedRange, position.counted, position.x, position.z, false, 0.0D, 0.0D);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks whether any player is close enough to the chunk for mobs to
+     * spawn.
+     *
+     * @param chunk the chunk key
+     * @param reducedRange whether to use the mob-spawn-range instead of the
+     *     vanilla range
+     */
+    public boolean isInRange(long chunk, boolean reducedRange) {
+        return (reducedRange ? reduced : vanilla).get(chunk) > 0;
+    }
+
+    /**
+     * Moves a player's range from one position to another, only touching the
+     * chunks that differ.
+     *
+     * @param from whether the player was counted at the old position
+     * @param to whether the player is counted at the new position
+     */
+    private static void move(Long2IntOpenHashMap counts, double range, boolean from, double fromX, double fromZ, boolean to, double toX, double toZ) {
+        if (!from && !to) {
+            return;
+        }
+        final double radius = Math.sqrt(range);
+        if (from && to && (Math.abs(toX - fromX) >= radius * 2.0D || Math.abs(toZ - fromZ) >= radius * 2.0D)) {
+            // Teleported, the ranges don't overlap
+            move(counts, range, true, fromX, fromZ, false, 0.0D, 0.0D);
+            move(counts, range, false, 0.0D, 0.0D, true, toX, toZ);
+            return;
+        }
+        final double minX = Math.min(from ? fromX : toX, to ? toX : fromX);
+        final double maxX = Math.max(from ? fromX : toX, to ? toX : fromX);
+        final double minZ = Math.min(from ? fromZ : toZ, to ? toZ : fromZ);
+        final double maxZ = Math.max(from ? fromZ : toZ, to ? toZ : fromZ);
+
+        final int minChunkX = Mth.floor((minX - radius - 8.0D) / 16.0D);
+        final int maxChunkX = Mth.ceil((maxX + radius - 8.0D) / 16.0D);
+        final int minChunkZ = Mth.floor((minZ - radius - 8.0D) / 16.0D);
+        final int maxChunkZ = Mth.ceil((maxZ + radius - 8.0D) / 16.0D);
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            final double centerX = (chunkX << 4) + 8.0D;
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                final double centerZ = (chunkZ << 4) + 8.0D;
+                final boolean wasInRange = from && distance(centerX, centerZ, fromX, fromZ) < range;
+                final boolean isInRange = to && distance(centerX, centerZ, toX, toZ) < range;
+                if (wasInRange == isInRange) {
+                    continue;
+                }
+                final long chunk = ChunkPos.asLong(chunkX, chunkZ);
+                if (isInRange) {
+                    counts.addTo(chunk, 1);
+                } else if (counts.addTo(chunk, -1) == 1) {
+                    counts.remove(chunk);
+                }
+            }
+        }
+    }
+
+    private static double distance(double centerX, double centerZ, double x, double z) {
+        final double dx = centerX - x;
+        final double dz = centerZ - z;
+        return dx * dx + dz * dz;
+    }
+
+    private static final class Position {
+        private boolean counted;
+        private double x;
+        private double z;
+        private int tick;
+    }
+}
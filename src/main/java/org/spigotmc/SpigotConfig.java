@@ -353,6 +353,87 @@ public class SpigotConfig {
         disablePlayerDataSaving = getBoolean("players.disable-saving", false);
     }
 
+    public static boolean pluginClassCache;
+
+    private static void pluginClassCache() {
+        pluginClassCache = getBoolean("settings.plugin-class-cache", true);
+    }
+
+    public static String asyncSchedulerMode = "cached";
+    public static int asyncSchedulerCoreThreads = 4;
+    public static int asyncSchedulerMaxThreads = 128;
+
+    private static void asyncScheduler() {
+        asyncSchedulerMode = getString("settings.async-scheduler.mode", "cached");
+        asyncSchedulerCoreThreads = getInt("settings.async-scheduler.core-threads", 4);
+        asyncSchedulerMaxThreads = getInt("settings.async-scheduler.max-threads", 128);
+        commands.put("asynctasks", new AsyncTasksCommand("asynctasks"));
+    }
+
+    public static String loginAuthenticatorMode = "bounded";
+    public static int loginAuthenticatorThreads = 8;
+    public static int loginAuthenticatorMaxPending = 512;
+    public static String loginAuthenticatorBusyMessage;
+
+    private static void loginAuthenticator() {
+        loginAuthenticatorMode = getString("settings.login-authenticator.mode", "bounded");
+        loginAuthenticatorThreads = getInt("settings.login-authenticator.threads", 8);
+        loginAuthenticatorMaxPending = getInt("settings.login-authenticator.max-pending", 512);
+        loginAuthenticatorBusyMessage = transform(getString("messages.login-busy", "The server is busy, please try again in a moment."));
+    }
+
+    public static boolean pluginTaskBudget;
+    public static double pluginTaskBudgetDefault;
+    public static Map<String, Double> pluginTaskBudgets = new HashMap<>();
+
+    private static void pluginTaskBudget() {
+        pluginTaskBudget = getBoolean("settings.plugin-task-budget.enabled", false);
+        pluginTaskBudgetDefault = getDouble("settings.plugin-task-budget.default-ms", 10.0);
+
+        if (!config.contains("settings.plugin-task-budget.plugins")) {
+            config.createSection("settings.plugin-task-budget.plugins");
+        }
+
+        pluginTaskBudgets.clear();
+        ConfigurationSection section = config.getConfigurationSection("settings.plugin-task-budget.plugins");
+        for (String name : section.getKeys(false)) {
+            if (section.isInt(name) || section.isDouble(name)) {
+                pluginTaskBudgets.put(name, section.getDouble(name));
+            } else {
+                Bukkit.getLogger().log(Level.WARNING, "Ignoring invalid settings.plugin-task-budget.plugins " + name);
+            }
+        }
+    }
+
+    public static int profilerHistoryTicks = 1200;
+
+    private static void profiler() {
+        profilerHistoryTicks = Math.max(1, getInt("settings.profiler.history-ticks", 1200));
+    }
+
+    public static boolean mapColorCache;
+    public static boolean mapColorCacheSave;
+
+    private static void mapColorCache() {
+        mapColorCache = getBoolean("settings.map-color-cache.enabled", true);
+        mapColorCacheSave = getBoolean("settings.map-color-cache.save-to-disk", true);
+    }
+
+    public static boolean flushConsolidation;
+    public static int flushConsolidationMaxBytes;
+
+    private static void flushConsolidation() {
+        flushConsolidation = getBoolean("settings.flush-consolidation.enabled", false);
+        flushConsolidationMaxBytes = Math.max(0, getInt("settings.flush-consolidation.max-bytes", 65536));
+        commands.put("flushstats", new FlushStatsCommand("flushstats"));
+    }
+
+    public static boolean shareChunkSnapshots;
+
+    private static void shareChunkSnapshots() {
+        shareChunkSnapshots = getBoolean("settings.share-chunk-snapshots", false);
+    }
+
     public static boolean belowZeroGenerationInExistingChunks;
 
     private static void belowZeroGenerationInExistingChunks() {
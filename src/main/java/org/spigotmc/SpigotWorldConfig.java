@@ -350,10 +350,12 @@ public class SpigotWorldConfig {
 
     public int tileMaxTickTime;
     public int entityMaxTickTime;
+    public boolean maxTickTimeScaleWithMspt; // CatServer
 
     private void maxTickTimes() {
         tileMaxTickTime = getInt("max-tick-time.tile", 50);
         entityMaxTickTime = getInt("max-tick-time.entity", 50);
+        maxTickTimeScaleWithMspt = getBoolean("max-tick-time.scale-with-mspt", false); // CatServer
         log("Tile Max Tick Time: " + tileMaxTickTime + "ms Entity max Tick Time: " + entityMaxTickTime + "ms");
     }
 
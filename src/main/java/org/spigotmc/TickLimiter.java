@@ -1,19 +1,114 @@
 package org.spigotmc;
 
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.block.entity.TickingBlockEntity;
+import org.bukkit.Bukkit;
+
+/**
+ * Time a world may spend ticking entities or block entities each tick.
+ * <p>
+ * With max-tick-time.scale-with-mspt the budget shrinks while the server's
+ * average tick time is above 50ms, in proportion to how far behind it is, so
+ * an overloaded server gets back on its feet sooner. Entries that did not
+ * get a turn are counted by type and reported once a minute. Only a sample of
+ * them is looked at each tick, as resolving the type of every skipped entry
+ * would add work to the very ticks that are already over budget.
+ */
 public class TickLimiter {
-    private final int maxTime;
+
+    private static final float TICK_MILLIS = 50.0F;
+    private static final double MIN_SCALE = 0.1D;
+    private static final int REPORT_INTERVAL = 20 * 60;
+    private static final int STARVED_SAMPLES = 16;
+
+    private final String world;
+    private final long maxTime;
+    private final boolean scaleWithMspt;
+    private long budget;
     private long startTime;
 
+    private final Object2LongOpenHashMap<String> starved = new Object2LongOpenHashMap<String>();
+    private final Object2LongOpenHashMap<String> reportStarved = new Object2LongOpenHashMap<String>();
+    private int reportTick = -REPORT_INTERVAL;
+
     public TickLimiter(int maxTime) {
-        this.maxTime = maxTime;
+        this(null, maxTime, false);
+    }
+
+    public TickLimiter(String world, int maxTime, boolean scaleWithMspt) {
+        this.world = world;
+        this.maxTime = TimeUnit.MILLISECONDS.toNanos(maxTime);
+        this.scaleWithMspt = scaleWithMspt;
+        this.budget = this.maxTime;
     }
 
     public void initTick() {
-        startTime = System.currentTimeMillis();
+        budget = maxTime;
+        if (scaleWithMspt) {
+            final float mspt = MinecraftServer.getServer().getAverageTickTime();
+            if (mspt > TICK_MILLIS) {
+                budget = (long) (maxTime * Math.max(MIN_SCALE, TICK_MILLIS / mspt));
+            }
+        }
+        startTime = System.nanoTime();
     }
 
     public boolean shouldContinue() {
-        long remaining = System.currentTimeMillis() - startTime;
-        return remaining < maxTime;
+        long elapsed = System.nanoTime() - startTime;
+        return elapsed < budget;
+    }
+
+    /**
+     * Counts the block entities that did not get a turn this tick, they are
+     * the next to tick. The count is spread over the types of up to
+     * {@value #STARVED_SAMPLES} evenly spaced tickers.
+     *
+     * @param tickers the world's block entity tickers
+     * @param next index of the first ticker that did not tick
+     * @param count number of tickers that did not tick
+     */
+    public void starved(List<TickingBlockEntity> tickers, int next, int count) {
+        final int size = tickers.size();
+        final int samples = Math.min(count, STARVED_SAMPLES);
+        for (int i = 0; i < samples; i++) {
+            // Each sample stands for the tickers up to the next one
+            final long from = (long) i * count / samples;
+            final long to = (long) (i + 1) * count / samples;
+            final TickingBlockEntity ticker = tickers.get((int) ((next + from) % size));
+            if (ticker != null) {
+                final String type = ticker.getType();
+                starved.addTo(type, to - from);
+                reportStarved.addTo(type, to - from);
+            }
+        }
+
+        if (MinecraftServer.currentTick - reportTick >= REPORT_INTERVAL) {
+            final List<Object2LongMap.Entry<String>> types = new ArrayList<Object2LongMap.Entry<String>>(reportStarved.object2LongEntrySet());
+            types.sort((a, b) -> Long.compare(b.getLongValue(), a.getLongValue()));
+            final StringBuilder top = new StringBuilder();
+            for (int i = 0; i < Math.min(5, types.size()); i++) {
+                top.append(i == 0 ? "" : ", ").append(types.get(i).getKey()).append(" (").append(types.get(i).getLongValue()).append(')');
+            }
+            Bukkit.getLogger().warning(String.format("World %s ran out of its %.1fms block entity tick time, skipped turns since the last report: %s",
+                    world, budget / 1e6, top));
+            reportStarved.clear();
+            reportTick = MinecraftServer.currentTick;
+        }
+    }
+
+    /**
+     * Gets how many times each block entity type was skipped since the world
+     * loaded, estimated from the sampled tickers.
+     *
+     * @return a copy of the skipped turns by type
+     */
+    public Map<String, Long> getStarved() {
+        return new Object2LongOpenHashMap<String>(starved);
     }
 }
@@ -0,0 +1,354 @@
+package org.spigotmc;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Call tree behind {@link CustomTimingsHandler}.
+ * <p>
+ * Every timer started on the main thread becomes a node under the timer that
+ * was running when it started, so the tree follows the actual nesting: world,
+ * entity and block entity types, plugins and their tasks. Times are recorded
+ * per tick into primitive arrays indexed by node, and the last
+ * settings.profiler.history-ticks ticks are kept in a ring so the window can
+ * be exported as a flame graph in the folded stack format understood by
+ * flamegraph.pl and speedscope. The ring grows with the nodes recorded per
+ * tick up to a fixed number of entries; past that the oldest ticks are
+ * dropped early, and {@link #getHistorySize()} reports the ticks actually
+ * covered.
+ * <p>
+ * Only called while timings are enabled; everything except registration and
+ * the accessors is main thread only.
+ */
+public final class TickProfiler {
+
+    private static final long EMPTY = -1L;
+    // Upper bound of the entry ring, 16 bytes per entry
+    private static final int MAX_ENTRIES = 1 << 22;
+
+    private static final List<String> names = new ArrayList<String>();
+
+    private static Thread mainThread;
+
+    // Nodes
+    private static int nodeCount;
+    private static int[] nodeParent = new int[256];
+    private static int[] nodeHandler = new int[256];
+    private static long[] tickTime = new long[256];
+    private static int[] tickCount = new int[256];
+    private static long[] windowTime = new long[256];
+    private static long[] windowCount = new long[256];
+
+    // (parent + 1) << 32 | handler -> node, open addressing
+    private static long[] childKeys = newKeys(512);
+    private static int[] childNodes = new int[512];
+
+    // Nodes recorded in the current tick
+    private static int[] touched = new int[256];
+    private static int touchedCount;
+
+    // Running timers
+    private static int[] stackNode = new int[64];
+    private static long[] stackStart = new long[64];
+    private static int depth;
+
+    // History, one slot per tick pointing into the entry ring
+    private static int historyTicks;
+    private static long[] historyTotal = new long[0];
+    private static int[] historyStart = new int[0];
+    private static int[] historyLength = new int[0];
+    private static int historyHead;
+    private static int historySize;
+    private static int[] entryNode = new int[0];
+    private static long[] entryTime = new long[0];
+    private static int[] entryCount = new int[0];
+    private static int entryTail;
+    private static int entryUsed;
+
+    private TickProfiler() {
+    }
+
+    static synchronized int register(String name) {
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    static void enter(CustomTimingsHandler handler, long start) {
+        if (Thread.currentThread() != mainThread) {
+            return;
+        }
+        final int parent = depth == 0 ? -1 : stackNode[depth - 1];
+        if (depth == stackNode.length) {
+            stackNode = Arrays.copyOf(stackNode, depth * 2);
+            stackStart = Arrays.copyOf(stackStart, depth * 2);
+        }
+        stackNode[depth] = child(parent, handler.id);
+        stackStart[depth] = start;
+        depth++;
+    }
+
+    static void exit(CustomTimingsHandler handler, long end) {
+        if (Thread.currentThread() != mainThread) {
+            return;
+        }
+        // Timers left running by an exception are closed along with their parent
+        for (int i = depth - 1; i >= 0; i--) {
+            if (nodeHandler[stackNode[i]] == handler.id) {
+                while (depth > i) {
+                    depth--;
+                    record(stackNode[depth], end - stackStart[depth]);
+                }
+                return;
+            }
+        }
+    }
+
+    private static void record(int node, long time) {
+        if (tickCount[node] == 0) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = node;
+        }
+        tickTime[node] += time;
+        tickCount[node]++;
+    }
+
+    private static int child(int parent, int handler) {
+        final long key = ((long) (parent + 1) << 32) | handler;
+        final int mask = childKeys.length - 1;
+        int slot = (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+        while (childKeys[slot] != EMPTY) {
+            if (childKeys[slot] == key) {
+                return childNodes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        final int node = nodeCount++;
+        if (node == nodeParent.length) {
+            final int size = node * 2;
+            nodeParent = Arrays.copyOf(nodeParent, size);
+            nodeHandler = Arrays.copyOf(nodeHandler, size);
+            tickTime = Arrays.copyOf(tickTime, size);
+            tickCount = Arrays.copyOf(tickCount, size);
+            windowTime = Arrays.copyOf(windowTime, size);
+            windowCount = Arrays.copyOf(windowCount, size);
+        }
+        nodeParent[node] = parent;
+        nodeHandler[node] = handler;
+        childKeys[slot] = key;
+        childNodes[slot] = node;
+        if (nodeCount * 2 > childKeys.length) {
+            rehash(childKeys.length * 2);
+        }
+        return node;
+    }
+
+    private static void rehash(int size) {
+        final long[] keys = childKeys;
+        final int[] nodes = childNodes;
+        childKeys = newKeys(size);
+        childNodes = new int[size];
+        final int mask = size - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                int slot = (int) (keys[i] ^ (keys[i] >>> 29)) * 0x9E3779B9 & mask;
+                while (childKeys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                childKeys[slot] = keys[i];
+                childNodes[slot] = nodes[i];
+            }
+        }
+    }
+
+    private static long[] newKeys(int size) {
+        final long[] keys = new long[size];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    /**
+     * Closes the current tick and moves its times into the history.
+     */
+    static void tick() {
+        if (mainThread == null) {
+            mainThread = Thread.currentThread();
+        }
+        depth = 0;
+        if (historyTicks != SpigotConfig.profilerHistoryTicks) {
+            resize(SpigotConfig.profilerHistoryTicks);
+        }
+
+        if (historySize == historyTicks) {
+            evict();
+        }
+        final int needed = entryUsed + touchedCount;
+        if (needed > entryNode.length && entryNode.length < MAX_ENTRIES) {
+            grow(Math.min(MAX_ENTRIES, Math.max(needed, entryNode.length * 2)));
+        }
+        while (historySize > 0 && entryNode.length - entryUsed < touchedCount) {
+            evict();
+        }
+        if (entryNode.length < touchedCount) {
+            // A single tick larger than the limit, the history is empty by now
+            grow(touchedCount);
+        }
+
+        long total = 0L;
+        final int start = (entryTail + entryUsed) % Math.max(1, entryNode.length);
+        for (int i = 0; i < touchedCount; i++) {
+            final int node = touched[i];
+            final int entry = (start + i) % entryNode.length;
+            entryNode[entry] = node;
+            entryTime[entry] = tickTime[node];
+            entryCount[entry] = tickCount[node];
+            windowTime[node] += tickTime[node];
+            windowCount[node] += tickCount[node];
+            if (nodeParent[node] == -1) {
+                total += tickTime[node];
+            }
+            tickTime[node] = 0L;
+            tickCount[node] = 0;
+        }
+        entryUsed += touchedCount;
+
+        historyTotal[historyHead] = total;
+        historyStart[historyHead] = start;
+        historyLength[historyHead] = touchedCount;
+        historyHead = (historyHead + 1) % historyTicks;
+        historySize++;
+        touchedCount = 0;
+    }
+
+    private static void evict() {
+        final int oldest = (historyHead - historySize + historyTicks) % historyTicks;
+        final int start = historyStart[oldest];
+        for (int i = 0; i < historyLength[oldest]; i++) {
+            final int entry = (start + i) % entryNode.length;
+            windowTime[entryNode[entry]] -= entryTime[entry];
+            windowCount[entryNode[entry]] -= entryCount[entry];
+        }
+        entryTail = (start + historyLength[oldest]) % entryNode.length;
+        entryUsed -= historyLength[oldest];
+        historySize--;
+    }
+
+    private static void grow(int size) {
+        final int length = entryNode.length;
+        final int[] nodes = new int[size];
+        final long[] times = new long[size];
+        final int[] counts = new int[size];
+        // Unroll the ring so the entries of the oldest tick start at 0
+        for (int i = 0; i < entryUsed; i++) {
+            final int entry = (entryTail + i) % length;
+            nodes[i] = entryNode[entry];
+            times[i] = entryTime[entry];
+            counts[i] = entryCount[entry];
+        }
+        for (int i = 0; i < historySize; i++) {
+            final int slot = (historyHead - historySize + i + historyTicks) % historyTicks;
+            historyStart[slot] = length == 0 ? 0 : (historyStart[slot] - entryTail + length) % length;
+        }
+        entryNode = nodes;
+        entryTime = times;
+        entryCount = counts;
+        entryTail = 0;
+    }
+
+    private static void resize(int ticks) {
+        historyTicks = Math.max(1, ticks);
+        historyTotal = new long[historyTicks];
+        historyStart = new int[historyTicks];
+        historyLength = new int[historyTicks];
+        entryNode = new int[(int) Math.min(MAX_ENTRIES, historyTicks * 64L)];
+        entryTime = new long[entryNode.length];
+        entryCount = new int[entryNode.length];
+        reset();
+    }
+
+    /**
+     * Drops the history and the times of the current tick.
+     */
+    static void reset() {
+        Arrays.fill(tickTime, 0L);
+        Arrays.fill(tickCount, 0);
+        Arrays.fill(windowTime, 0L);
+        Arrays.fill(windowCount, 0L);
+        touchedCount = 0;
+        historyHead = 0;
+        historySize = 0;
+        entryTail = 0;
+        entryUsed = 0;
+    }
+
+    /**
+     * Gets the number of ticks currently in the history window, which may
+     * be less than {@link #getHistoryTicks()} when the ticks recorded too
+     * many nodes to keep them all.
+     */
+    public static int getHistorySize() {
+        return historySize;
+    }
+
+    /**
+     * Gets the configured length of the history window.
+     */
+    public static int getHistoryTicks() {
+        return historyTicks;
+    }
+
+    /**
+     * Gets the time of each tick in the history window, oldest first.
+     *
+     * @return tick times in nanoseconds
+     */
+    public static long[] getTickTimes() {
+        final long[] times = new long[historySize];
+        for (int i = 0; i < historySize; i++) {
+            times[i] = historyTotal[(historyHead - historySize + i + historyTicks) % historyTicks];
+        }
+        return times;
+    }
+
+    /**
+     * Writes the history window in the folded stack format, one line per
+     * call path with its self time in microseconds.
+     *
+     * @param out the stream to write to
+     */
+    public static void writeFolded(PrintStream out) {
+        final long[] self = Arrays.copyOf(windowTime, nodeCount);
+        for (int node = 0; node < nodeCount; node++) {
+            if (nodeParent[node] != -1) {
+                self[nodeParent[node]] -= windowTime[node];
+            }
+        }
+
+        final String[] paths = new String[nodeCount];
+        final StringBuilder line = new StringBuilder();
+        for (int node = 0; node < nodeCount; node++) {
+            final long micros = self[node] / 1000L;
+            if (micros <= 0L) {
+                continue;
+            }
+            line.setLength(0);
+            line.append(path(node, paths)).append(' ').append(micros);
+            out.println(line);
+        }
+    }
+
+    private static String path(int node, String[] paths) {
+        if (paths[node] == null) {
+            final String name;
+            synchronized (TickProfiler.class) {
+                name = names.get(nodeHandler[node]).replace(';', ':').trim();
+            }
+            paths[node] = nodeParent[node] == -1 ? name : path(nodeParent[node], paths) + ';' + name;
+        }
+        return paths[node];
+    }
+}
@@ -1,6 +1,10 @@
 package org.spigotmc;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -34,6 +38,24 @@ public class TicksPerSecondCommand extends Command
         sender.sendMessage(ChatColor.GOLD + "Current Memory Usage: " + ChatColor.GREEN + ((Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) / (1024 * 1024)) + "/" + (Runtime.getRuntime().totalMemory() / (1024 * 1024)) + " mb (Max: "
                 + (Runtime.getRuntime().maxMemory() / (1024 * 1024)) + " mb)");
 
+        // CatServer start - block entities that ran out of tick time, most skipped first
+        for ( ServerLevel level : MinecraftServer.getServer().getAllLevels() )
+        {
+            List<Map.Entry<String, Long>> starved = new ArrayList<>( level.tileLimiter.getStarved().entrySet() );
+            if ( starved.isEmpty() )
+            {
+                continue;
+            }
+            starved.sort( (a, b) -> Long.compare( b.getValue(), a.getValue() ) );
+            StringBuilder top = new StringBuilder();
+            for ( int i = 0; i < Math.min( 5, starved.size() ); i++ )
+            {
+                top.append( i == 0 ? "" : ", " ).append( starved.get( i ).getKey() ).append( " (" ).append( starved.get( i ).getValue() ).append( ')' );
+            }
+            sender.sendMessage( ChatColor.GOLD + "Skipped block entity turns in " + level.getWorld().getName() + ": " + ChatColor.GREEN + top );
+        }
+        // CatServer end
+
         return true;
     }
 